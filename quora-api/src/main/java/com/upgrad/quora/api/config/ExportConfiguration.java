@@ -0,0 +1,30 @@
+package com.upgrad.quora.api.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * This Configuration declares the pool running the exports of the question and answer corpus.
+ * Every running export holds a database connection and a read only snapshot for as long as it streams,
+ * so the pool is kept small and apart from the default async executor, which starts a thread per request.
+ */
+@Configuration
+public class ExportConfiguration {
+
+    /**
+     * @param threads most exports running at once, further exports are turned away by ExportController
+     */
+    @Bean
+    public ThreadPoolTaskExecutor exportTaskExecutor(@Value("${quora.export.threads:2}") final int threads) {
+        final ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        //ExportController admits no more exports than there are threads, the queue only bridges a thread finishing its previous export
+        executor.setQueueCapacity(threads);
+        executor.setThreadNamePrefix("export-");
+        executor.setDaemon(true);
+        return executor;
+    }
+}
@@ -4,13 +4,17 @@ import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.AnswerService;
 import com.upgrad.quora.service.business.QuestionService;
 import com.upgrad.quora.service.business.UserBusinessService;
+import com.upgrad.quora.service.business.UuidGenerator;
+import com.upgrad.quora.service.dto.AnswerSummary;
+import com.upgrad.quora.service.dto.QuestionAnswersPage;
 import com.upgrad.quora.service.entity.Answer;
 import com.upgrad.quora.service.entity.Question;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidPageRequestException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
-import com.upgrad.quora.service.type.ActionType;
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -18,8 +22,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.ZonedDateTime;
-import java.util.List;
-import java.util.UUID;
 
 
 /**
@@ -38,6 +40,9 @@ public class AnswerController {
     @Autowired
     UserBusinessService userBusinessService;
 
+    @Autowired
+    UuidGenerator uuidGenerator;
+
 
     /**
      * @param answerRequest
@@ -73,7 +78,7 @@ public class AnswerController {
         Answer answer = new Answer();
         answer.setQuestion(question);
         answer.setAnswer(answerRequest.getAnswer());
-        answer.setUuid(UUID.randomUUID().toString());
+        answer.setUuid(uuidGenerator.generate().toString());
         answer.setUser(authorizedUser.getUser());
         ZonedDateTime now = ZonedDateTime.now();
         answer.setDate(now);
@@ -104,10 +109,9 @@ public class AnswerController {
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.FORBIDDEN);
         }
 
-        //get the answer Object after checking if user if owner of the answer
-        Answer answer;
+        //edit the answer if the user is owner of the answer
         try {
-            answer = answerService.isUserAnswerOwner(answerUuId, authorizedUser, ActionType.EDIT_ANSWER);
+            answerService.editAnswer(answerUuId, answerEditRequest.getContent(), authorizedUser);
         }catch(AuthorizationFailedException authFE){
             ErrorResponse errorResponse = new ErrorResponse().message(authFE.getErrorMessage()).code(authFE.getCode()).rootCause(authFE.getMessage());
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.FORBIDDEN);
@@ -115,10 +119,6 @@ public class AnswerController {
             ErrorResponse errorResponse = new ErrorResponse().message(aNFE.getErrorMessage()).code(aNFE.getCode()).rootCause(aNFE.getMessage());
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.NOT_FOUND);
         }
-        //set the details that needs to updated in database
-        answer.setAnswer(answerEditRequest.getContent());
-        answer.setDate(ZonedDateTime.now());
-        Answer editedAnswer = answerService.editAnswer(answer);
         AnswerEditResponse answerEditResponse = new AnswerEditResponse()
                 .id(answerUuId)
                 .status("ANSWER EDITED");
@@ -137,9 +137,8 @@ public class AnswerController {
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.FORBIDDEN);
         }
         //Check if the user is himself or an admin trying to delete the answer
-        Answer answer;
         try {
-            answer = answerService.isUserAnswerOwner(answerUuId, authorizedUser, ActionType.DELETE_ANSWER);
+            answerService.deleteAnswer(answerUuId, authorizedUser);
         }catch(AuthorizationFailedException authFE){
             ErrorResponse errorResponse = new ErrorResponse().message(authFE.getErrorMessage()).code(authFE.getCode()).rootCause(authFE.getMessage());
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.NOT_FOUND);
@@ -147,7 +146,6 @@ public class AnswerController {
             ErrorResponse errorResponse = new ErrorResponse().message(aNFE.getErrorMessage()).code(aNFE.getCode()).rootCause(aNFE.getMessage());
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.NOT_FOUND);
         }
-        answerService.deleteAnswer(answer);
         AnswerDeleteResponse answerDeleteResponse = new AnswerDeleteResponse()
                 .id(answerUuId)
                 .status("ANSWER DELETED");
@@ -155,8 +153,31 @@ public class AnswerController {
     }
 
 
-    @RequestMapping(method = RequestMethod.GET, path = "/answer/all/{questionId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<?> getAllAnswersToQuestion(@PathVariable("questionId") final String questionId, @RequestHeader("authorization") final String authorization) throws AuthorizationFailedException, InvalidQuestionException, AnswerNotFoundException {
+    /**
+     * Rest Endpoint method implementation used for upvoting an answer.
+     *
+     * @param answerUuId    uuid of the answer
+     * @param authorization access token of user
+     * @return ResponseEntity object with the answer uuid, sent before the vote is applied to the score
+     */
+    @RequestMapping(method = RequestMethod.PUT, path = "/answer/upvote/{answerId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<?> upvoteAnswer(@PathVariable("answerId") final String answerUuId, @RequestHeader("authorization") final String authorization) {
+        return voteAnswer(answerUuId, authorization, true);
+    }
+
+    /**
+     * Rest Endpoint method implementation used for downvoting an answer.
+     *
+     * @param answerUuId    uuid of the answer
+     * @param authorization access token of user
+     * @return ResponseEntity object with the answer uuid, sent before the vote is applied to the score
+     */
+    @RequestMapping(method = RequestMethod.PUT, path = "/answer/downvote/{answerId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<?> downvoteAnswer(@PathVariable("answerId") final String answerUuId, @RequestHeader("authorization") final String authorization) {
+        return voteAnswer(answerUuId, authorization, false);
+    }
+
+    private ResponseEntity<?> voteAnswer(final String answerUuId, final String authorization, final boolean up) {
         //Authorize the user if he has signed in properly
         UserAuthEntity authorizedUser;
         try {
@@ -165,53 +186,72 @@ public class AnswerController {
             ErrorResponse errorResponse = new ErrorResponse().message(authFE.getErrorMessage()).code(authFE.getCode()).rootCause(authFE.getMessage());
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.FORBIDDEN);
         }
-        List<Answer> answerList;
         try {
-            answerList = answerService.getAnswersForQuestion(questionId);
-        }catch(InvalidQuestionException iQE) {
-            ErrorResponse errorResponse = new ErrorResponse().message(iQE.getErrorMessage()).code(iQE.getCode()).rootCause(iQE.getMessage());
-            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.NOT_FOUND);
+            answerService.voteAnswer(answerUuId, up, authorizedUser);
         }catch(AnswerNotFoundException aNFE){
             ErrorResponse errorResponse = new ErrorResponse().message(aNFE.getErrorMessage()).code(aNFE.getCode()).rootCause(aNFE.getMessage());
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.NOT_FOUND);
+        }catch(ServiceUnavailableException sUE){
+            ErrorResponse errorResponse = new ErrorResponse().message(sUE.getErrorMessage()).code(sUE.getCode()).rootCause(sUE.getMessage());
+            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
         }
-        StringBuilder contentBuilder = new StringBuilder();
-        getContentsString(answerList, contentBuilder);
-        StringBuilder uuIdBuilder = new StringBuilder();
-        String questionContentValue = getUuIdStringAndQuestionContent(answerList, uuIdBuilder);
-        AnswerDetailsResponse response = new AnswerDetailsResponse()
-                .id(uuIdBuilder.toString())
-                .answerContent(contentBuilder.toString())
-                .questionContent(questionContentValue);
-        return new ResponseEntity<>(response, HttpStatus.OK);
+        AnswerVoteResponse answerVoteResponse = new AnswerVoteResponse()
+                .id(answerUuId)
+                .status(up ? "ANSWER UPVOTED" : "ANSWER DOWNVOTED");
+        return new ResponseEntity<AnswerVoteResponse>(answerVoteResponse, HttpStatus.ACCEPTED);
     }
 
     /**
-     * private utility method for appending the uuid of answers.
+     * Rest Endpoint method implementation used for getting the content of a question and its answers, highest score first
+     * or most recent first, one page at a time.
      *
-     * @param answerList  List of questions
-     * @param uuIdBuilder StringBuilder object
+     * @param questionId    uuid of the question
+     * @param authorization access token of user
+     * @param sort          score or newest, absent for score
+     * @param cursor        cursor of the page returned with the previous page, absent for the first page
+     * @param limit         page size
+     * @return ResponseEntity object with the question content, the answers of the page and the cursor of the next page
      */
-    public static final String getUuIdStringAndQuestionContent(List<Answer> answerList, StringBuilder uuIdBuilder) {
-        String questionContent = new String();
-        for (Answer answerObject : answerList) {
-            uuIdBuilder.append(answerObject.getUuid()).append(",");
-            questionContent = answerObject.getQuestion().getContent();
+    @RequestMapping(method = RequestMethod.GET, path = "/answer/all/{questionId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<?> getAllAnswersToQuestion(@PathVariable("questionId") final String questionId, @RequestHeader("authorization") final String authorization,
+                                                     @RequestParam(value = "sort", required = false) final String sort,
+                                                     @RequestParam(value = "cursor", required = false) final String cursor,
+                                                     @RequestParam(value = "limit", required = false) final Integer limit) {
+        //Authorize the user if he has signed in properly
+        try {
+            userBusinessService.getUserByAccessToken(authorization);
+        }catch(AuthorizationFailedException authFE){
+            ErrorResponse errorResponse = new ErrorResponse().message(authFE.getErrorMessage()).code(authFE.getCode()).rootCause(authFE.getMessage());
+            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.FORBIDDEN);
         }
-        return questionContent;
+        QuestionAnswersPage answersPage;
+        try {
+            answersPage = answerService.getAnswersForQuestion(questionId, sort, cursor, limit);
+        }catch(InvalidQuestionException iQE) {
+            ErrorResponse errorResponse = new ErrorResponse().message(iQE.getErrorMessage()).code(iQE.getCode()).rootCause(iQE.getMessage());
+            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.NOT_FOUND);
+        }catch(InvalidPageRequestException pageRE){
+            ErrorResponse errorResponse = new ErrorResponse().message(pageRE.getErrorMessage()).code(pageRE.getCode()).rootCause(pageRE.getMessage());
+            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<AnswerListResponse>(toAnswerListResponse(answersPage), HttpStatus.OK);
     }
 
     /**
-     * private utility method for providing contents string in appended format
+     * private utility method for mapping a question and a page of its answers to the response model.
      *
-     * @param answerList list of questions
-     * @param builder    StringBuilder with appended content list.
+     * @param answersPage question content with a page of answers
+     * @return AnswerListResponse with one entry per answer
      */
-    public static final StringBuilder getContentsString(List<Answer> answerList, StringBuilder builder) {
-        for (Answer answerObject : answerList) {
-            builder.append(answerObject.getAnswer()).append(",");
+    private static AnswerListResponse toAnswerListResponse(QuestionAnswersPage answersPage) {
+        AnswerListResponse answerListResponse = new AnswerListResponse().questionContent(answersPage.getQuestionContent());
+        for (AnswerSummary answer : answersPage.getAnswers().getItems()) {
+            answerListResponse.addAnswersItem(new AnswerSummaryResponse().id(answer.getUuid()).answerContent(answer.getAnswer()).score(answer.getScore()));
+        }
+        if (answersPage.getAnswers().getNextCursor() != null) {
+            answerListResponse.nextCursor(answersPage.getAnswers().getNextCursor().encode());
         }
-        return builder;
+        return answerListResponse;
     }
 
 }
@@ -0,0 +1,171 @@
+package com.upgrad.quora.api.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.model.ErrorResponse;
+import com.upgrad.quora.service.business.ExportService;
+import com.upgrad.quora.service.business.UserBusinessService;
+import com.upgrad.quora.service.entity.Answer;
+import com.upgrad.quora.service.entity.Question;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.ZonedDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Controller class for exporting the question and answer corpus.
+ */
+@RestController
+@RequestMapping("/")
+public class ExportController {
+
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+
+    @Autowired
+    UserBusinessService userBusinessService;
+
+    @Autowired
+    ExportService exportService;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    @Qualifier("exportTaskExecutor")
+    ThreadPoolTaskExecutor exportTaskExecutor;
+
+    @Value("${quora.export.timeout-ms:3600000}")
+    long exportTimeoutMillis;
+
+    //one permit per export thread, taken before the export is handed to the pool and given back once it ended or never started
+    private Semaphore exportPermits;
+
+    @PostConstruct
+    void initExportPermits() {
+        exportPermits = new Semaphore(exportTaskExecutor.getMaxPoolSize());
+    }
+
+    /**
+     * Rest Endpoint method implementation used for exporting all questions and answers as newline delimited JSON.
+     * Every line is one question or answer object; all questions come first, then all answers, each ordered by id.
+     * Rows are written to the response as they are read from the database, so the export runs in constant memory.
+     * The export runs as an async task on the export pool with a timeout of its own, every other async request keeps
+     * the default executor and timeout. While every export thread is busy further exports are answered with 503.
+     * Error responses are written as JSON whatever the client accepts, only the export itself is NDJSON.
+     *
+     * @param authorization access token of user
+     * @param response      response the export is streamed to
+     * @return WebAsyncTask writing the export or the error response, null if the export was turned away
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/question/export")
+    public WebAsyncTask<ResponseEntity<?>> exportQuestionsAndAnswers(@RequestHeader("authorization") final String authorization,
+                                                                    final HttpServletResponse response) throws IOException {
+        if (!exportPermits.tryAcquire()) {
+            writeError(response, HttpStatus.SERVICE_UNAVAILABLE, new ErrorResponse().code("GEN-002")
+                    .message("Too many exports running, please try again later"));
+            return null;
+        }
+        final AtomicBoolean started = new AtomicBoolean();
+        final WebAsyncTask<ResponseEntity<?>> task = new WebAsyncTask<>(exportTimeoutMillis, exportTaskExecutor, () -> {
+            if (!started.compareAndSet(false, true)) {
+                return null;
+            }
+            try {
+                export(authorization, response);
+            } finally {
+                exportPermits.release();
+            }
+            //the export or the error has been written to the response, there is no body left to render
+            return null;
+        });
+        //a request completing before its export started, such as one timing out, gives the permit back and keeps the export from starting;
+        //a started export gives it back itself once it ends, even after its request timed out
+        task.onCompletion(() -> {
+            if (started.compareAndSet(false, true)) {
+                exportPermits.release();
+            }
+        });
+        return task;
+    }
+
+    private void export(final String authorization, final HttpServletResponse response) throws IOException {
+        try {
+            userBusinessService.getUserByAccessToken(authorization);
+        } catch (AuthorizationFailedException authFE) {
+            writeError(response, HttpStatus.FORBIDDEN, new ErrorResponse().message(authFE.getErrorMessage()).code(authFE.getCode()).rootCause(authFE.getMessage()));
+            return;
+        }
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON_MEDIA_TYPE);
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+            generator.setRootValueSeparator(null);
+            exportService.exportQuestionsAndAnswers(
+                    question -> writeLine(generator, question),
+                    answer -> writeLine(generator, answer));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private void writeError(final HttpServletResponse response, final HttpStatus status, final ErrorResponse errorResponse) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_UTF8_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    private static void writeLine(final JsonGenerator generator, final Question question) {
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("type", "question");
+            generator.writeStringField("id", question.getUuid());
+            generator.writeStringField("content", question.getContent());
+            writeDate(generator, question.getDate());
+            generator.writeStringField("user_id", question.getUser().getUuid());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeLine(final JsonGenerator generator, final Answer answer) {
+        try {
+            generator.writeStartObject();
+            generator.writeStringField("type", "answer");
+            generator.writeStringField("id", answer.getUuid());
+            generator.writeStringField("question_id", answer.getQuestion().getUuid());
+            generator.writeStringField("answer", answer.getAnswer());
+            writeDate(generator, answer.getDate());
+            generator.writeStringField("user_id", answer.getUser().getUuid());
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeDate(final JsonGenerator generator, final ZonedDateTime date) throws IOException {
+        if (date == null) {
+            generator.writeNullField("date");
+        } else {
+            generator.writeStringField("date", date.toOffsetDateTime().toString());
+        }
+    }
+}
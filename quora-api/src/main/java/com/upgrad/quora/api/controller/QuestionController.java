@@ -3,14 +3,21 @@ package com.upgrad.quora.api.controller;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.QuestionService;
 import com.upgrad.quora.service.business.UserBusinessService;
+import com.upgrad.quora.service.business.UuidGenerator;
+import com.upgrad.quora.service.common.KeysetPage;
+import com.upgrad.quora.service.common.OffsetPage;
+import com.upgrad.quora.service.dto.QuestionCreateResult;
+import com.upgrad.quora.service.dto.QuestionSearchHit;
+import com.upgrad.quora.service.dto.QuestionSummary;
 import com.upgrad.quora.service.entity.Question;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import com.upgrad.quora.service.exception.InvalidPageRequestException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
-import com.upgrad.quora.service.exception.QuestionNotFoundException;
+import com.upgrad.quora.service.exception.InvalidSearchException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
-import com.upgrad.quora.service.type.ActionType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
@@ -19,8 +26,8 @@ import org.springframework.web.bind.annotation.*;
 
 
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.UUID;
 
 /**
  * Controller class for defining question related operations.
@@ -35,6 +42,9 @@ public class QuestionController {
     @Autowired
     QuestionService questionService;
 
+    @Autowired
+    UuidGenerator uuidGenerator;
+
     /**
      * Rest Endpoint method implementation used for creating question for authorized user.
      * Only logged-in user is allowed to create a question.
@@ -56,7 +66,7 @@ public class QuestionController {
         UserEntity user = authorizedUser.getUser();
         Question question = new Question();
         question.setUser(authorizedUser.getUser());
-        question.setUuid(UUID.randomUUID().toString());
+        question.setUuid(uuidGenerator.generate().toString());
         question.setContent(questionRequest.getContent());
         final ZonedDateTime now = ZonedDateTime.now();
         question.setDate(now);
@@ -66,16 +76,63 @@ public class QuestionController {
     }
 
     /**
-     * Rest Endpoint method implementation used for getting all questions for authorized user.
+     * Rest Endpoint method implementation used for creating many questions of the authorized user in one call.
+     * Every question is validated on its own and its result is reported at the index it was sent with.
+     *
+     * @param bulkCreateRequest request object holding the questions
+     * @param authorization     access token of user
+     * @return ResponseEntity object with the result of every question
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "/question/bulk/create", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<?> createQuestions(@RequestBody final QuestionBulkCreateRequest bulkCreateRequest, @RequestHeader final String authorization) {
+        UserAuthEntity authorizedUser;
+        try {
+            authorizedUser = userBusinessService.getUserByAccessToken(authorization);
+        }catch(AuthorizationFailedException authFE){
+            ErrorResponse errorResponse = new ErrorResponse().message(authFE.getErrorMessage()).code(authFE.getCode()).rootCause(authFE.getMessage());
+            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.FORBIDDEN);
+        }
+        List<String> contents = new ArrayList<>();
+        if (bulkCreateRequest.getQuestions() != null) {
+            for (QuestionRequest questionRequest : bulkCreateRequest.getQuestions()) {
+                contents.add(questionRequest == null ? null : questionRequest.getContent());
+            }
+        }
+        List<QuestionCreateResult> results;
+        try {
+            results = questionService.createQuestions(authorizedUser.getUser(), contents);
+        }catch(InvalidBulkRequestException bulkRE){
+            ErrorResponse errorResponse = new ErrorResponse().message(bulkRE.getErrorMessage()).code(bulkRE.getCode()).rootCause(bulkRE.getMessage());
+            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.BAD_REQUEST);
+        }
+        QuestionBulkCreateResponse bulkCreateResponse = new QuestionBulkCreateResponse();
+        int created = 0;
+        for (QuestionCreateResult result : results) {
+            QuestionBulkCreateResult bulkCreateResult = new QuestionBulkCreateResult().index(result.getIndex());
+            if (result.isCreated()) {
+                bulkCreateResult.id(result.getQuestion().getUuid()).status("QUESTION CREATED");
+                created++;
+            } else {
+                bulkCreateResult.status("QUESTION REJECTED").message(result.getErrorMessage());
+            }
+            bulkCreateResponse.addResultsItem(bulkCreateResult);
+        }
+        return new ResponseEntity<QuestionBulkCreateResponse>(bulkCreateResponse.created(created), HttpStatus.CREATED);
+    }
+
+    /**
+     * Rest Endpoint method implementation used for getting all questions for authorized user, one page at a time.
      * Only logged in user is allowed to get the details.
      *
      * @param authorization authorized user
-     * @return ResponseEntity object with response details of question
+     * @param cursor        cursor of the page returned with the previous page, absent for the first page
+     * @param limit         page size
+     * @return ResponseEntity object with the questions of the page and the cursor of the next page
      * @throws AuthorizationFailedException if user is not signed then this exception is thrown
-     * @throws QuestionNotFoundException    thrown if there are o questions for the user
      */
     @RequestMapping(method = RequestMethod.GET, path = "/question/all", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<?> getAllQuestions(@RequestHeader final String authorization) throws AuthorizationFailedException, QuestionNotFoundException {
+    public ResponseEntity<?> getAllQuestions(@RequestHeader final String authorization, @RequestParam(value = "cursor", required = false) final String cursor,
+                                             @RequestParam(value = "limit", required = false) final Integer limit) throws AuthorizationFailedException {
         try {
             UserAuthEntity authorizedUser = userBusinessService.getUserByAccessToken(authorization);
         }catch(AuthorizationFailedException authFE){
@@ -83,22 +140,52 @@ public class QuestionController {
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.FORBIDDEN);
         }
         //Since the user is authorized, go for extracting questions for all users
-        List<Question> questionList;
+        KeysetPage<QuestionSummary> questionPage;
+        try {
+            questionPage = questionService.getAllQuestions(cursor, limit);
+        }catch(InvalidPageRequestException pageRE){
+            ErrorResponse errorResponse = new ErrorResponse().message(pageRE.getErrorMessage()).code(pageRE.getCode()).rootCause(pageRE.getMessage());
+            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.BAD_REQUEST);
+        }
+        return new ResponseEntity<QuestionListResponse>(toQuestionListResponse(questionPage), HttpStatus.OK);
+    }
+
+
+    /**
+     * Rest Endpoint method implementation used for full-text searching questions, best matches first.
+     * Only logged in user is allowed to search.
+     *
+     * @param authorization authorized user
+     * @param query         words to search for
+     * @param offset        number of results to skip
+     * @param limit         page size
+     * @return ResponseEntity object with the matching questions of the page and the offset of the next page
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/question/search", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<?> searchQuestions(@RequestHeader final String authorization, @RequestParam(value = "q", required = false) final String query,
+                                             @RequestParam(value = "offset", required = false) final Integer offset,
+                                             @RequestParam(value = "limit", required = false) final Integer limit) {
         try {
-             questionList = questionService.getAllQuestions();
-        }catch(QuestionNotFoundException quesFE ){
-            ErrorResponse errorResponse = new ErrorResponse().message(quesFE.getErrorMessage()).code(quesFE.getCode()).rootCause(quesFE.getMessage());
-            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.UNAUTHORIZED);
-        }
-
-        StringBuilder builder = new StringBuilder();
-        getContentsString(questionList, builder);
-        StringBuilder uuIdBuilder = new StringBuilder();
-        getUuIdString(questionList, uuIdBuilder);
-        QuestionDetailsResponse questionResponse = new QuestionDetailsResponse()
-                .id(uuIdBuilder.toString())
-                .content(builder.toString());
-        return new ResponseEntity<QuestionDetailsResponse>(questionResponse, HttpStatus.OK);
+            userBusinessService.getUserByAccessToken(authorization);
+        }catch(AuthorizationFailedException authFE){
+            ErrorResponse errorResponse = new ErrorResponse().message(authFE.getErrorMessage()).code(authFE.getCode()).rootCause(authFE.getMessage());
+            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.FORBIDDEN);
+        }
+        OffsetPage<QuestionSearchHit> searchPage;
+        try {
+            searchPage = questionService.searchQuestions(query, offset, limit);
+        }catch(InvalidSearchException searchE){
+            ErrorResponse errorResponse = new ErrorResponse().message(searchE.getErrorMessage()).code(searchE.getCode()).rootCause(searchE.getMessage());
+            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.BAD_REQUEST);
+        }catch(InvalidPageRequestException pageRE){
+            ErrorResponse errorResponse = new ErrorResponse().message(pageRE.getErrorMessage()).code(pageRE.getCode()).rootCause(pageRE.getMessage());
+            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.BAD_REQUEST);
+        }
+        QuestionSearchResponse searchResponse = new QuestionSearchResponse().nextOffset(searchPage.getNextOffset());
+        for (QuestionSearchHit hit : searchPage.getItems()) {
+            searchResponse.addResultsItem(new QuestionSearchResult().id(hit.getUuid()).content(hit.getContent()).rank(hit.getRank()));
+        }
+        return new ResponseEntity<QuestionSearchResponse>(searchResponse, HttpStatus.OK);
     }
 
 
@@ -123,10 +210,9 @@ public class QuestionController {
             ErrorResponse errorResponse = new ErrorResponse().message(authFE.getErrorMessage()).code(authFE.getCode()).rootCause(authFE.getMessage());
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.FORBIDDEN);
         }
-        //Check if the user himself is the owner and trying to edit it and return the question object
-        Question question;
+        //Edit the question if the user himself is the owner
         try {
-            question = questionService.isUserQuestionOwner(questionId, authorizedUser, ActionType.EDIT_QUESTION);
+            questionService.editQuestion(questionId, questionEditRequest.getContent(), authorizedUser);
         }catch(InvalidQuestionException iQE){
             ErrorResponse errorResponse = new ErrorResponse().message(iQE.getErrorMessage()).code(iQE.getCode()).rootCause(iQE.getMessage());
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.NOT_FOUND);
@@ -134,9 +220,7 @@ public class QuestionController {
             ErrorResponse errorResponse = new ErrorResponse().message(authFE.getErrorMessage()).code(authFE.getCode()).rootCause(authFE.getMessage());
         return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.FORBIDDEN);
     }
-        question.setContent(questionEditRequest.getContent());
-        questionService.editQuestion(question);
-        QuestionEditResponse questionEditResponse = new QuestionEditResponse().id(question.getUuid()).status("QUESTION EDITED");
+        QuestionEditResponse questionEditResponse = new QuestionEditResponse().id(questionId).status("QUESTION EDITED");
         return new ResponseEntity<QuestionEditResponse>(questionEditResponse, HttpStatus.OK);
     }
 
@@ -161,10 +245,9 @@ public class QuestionController {
             ErrorResponse errorResponse = new ErrorResponse().message(authFE.getErrorMessage()).code(authFE.getCode()).rootCause(authFE.getMessage());
                 return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.FORBIDDEN);
         }
-        //Check if the user himself is the owner and trying to edit it and return the question object
-        Question question;
+        //Delete the question if the user himself is the owner or an admin
         try {
-            question = questionService.isUserQuestionOwner(questionUuId, authorizedUser, ActionType.DELETE_QUESTION);
+            questionService.deleteQuestion(questionUuId, authorizedUser);
         }catch(InvalidQuestionException iQE){
             ErrorResponse errorResponse = new ErrorResponse().message(iQE.getErrorMessage()).code(iQE.getCode()).rootCause(iQE.getMessage());
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.NOT_FOUND);
@@ -172,9 +255,8 @@ public class QuestionController {
             ErrorResponse errorResponse = new ErrorResponse().message(authFE.getErrorMessage()).code(authFE.getCode()).rootCause(authFE.getMessage());
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.FORBIDDEN);
         }
-        questionService.deleteQuestion(question);
         QuestionDeleteResponse questionDeleteResponse = new QuestionDeleteResponse()
-                .id(question.getUuid())
+                .id(questionUuId)
                 .status("QUESTION DELETED");
         return new ResponseEntity<QuestionDeleteResponse>(questionDeleteResponse, HttpStatus.OK);
     }
@@ -182,7 +264,9 @@ public class QuestionController {
     //getAllQuestionsByUser
 
     @RequestMapping(method = RequestMethod.GET, path = "/question/all/{userId}", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<?> getAllQuestionsByUser(@PathVariable("userId") final String uuId, @RequestHeader("authorization") final String authorization) throws AuthorizationFailedException, QuestionNotFoundException, UserNotFoundException {
+    public ResponseEntity<?> getAllQuestionsByUser(@PathVariable("userId") final String uuId, @RequestHeader("authorization") final String authorization,
+                                                   @RequestParam(value = "cursor", required = false) final String cursor,
+                                                   @RequestParam(value = "limit", required = false) final Integer limit) throws AuthorizationFailedException, UserNotFoundException {
         UserAuthEntity authorizedUser;
         try {
             authorizedUser = userBusinessService.getUserByAccessToken(authorization);
@@ -190,52 +274,35 @@ public class QuestionController {
             ErrorResponse errorResponse = new ErrorResponse().message(authFE.getErrorMessage()).code(authFE.getCode()).rootCause(authFE.getMessage());
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.FORBIDDEN);
         }
-        //Get the list of questions for the user
-        List<Question> questionList;
+        //Get the page of questions for the user
+        KeysetPage<QuestionSummary> questionPage;
         try {
-           questionList = questionService.getQuestionsForUser(uuId);
+            questionPage = questionService.getQuestionsForUser(uuId, cursor, limit);
         }catch(UserNotFoundException userNFE){
             ErrorResponse errorResponse = new ErrorResponse().message(userNFE.getErrorMessage()).code(userNFE.getCode()).rootCause(userNFE.getMessage());
             return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.NOT_FOUND);
-        }catch(QuestionNotFoundException quesNFE){
-            ErrorResponse errorResponse = new ErrorResponse().message(quesNFE.getErrorMessage()).code(quesNFE.getCode()).rootCause(quesNFE.getMessage());
-            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.NOT_FOUND);
+        }catch(InvalidPageRequestException pageRE){
+            ErrorResponse errorResponse = new ErrorResponse().message(pageRE.getErrorMessage()).code(pageRE.getCode()).rootCause(pageRE.getMessage());
+            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.BAD_REQUEST);
         }
-        StringBuilder contentBuilder = new StringBuilder();
-        StringBuilder uuIdBuilder = new StringBuilder();
-        getContentsString(questionList, contentBuilder);
-        getUuIdString(questionList, uuIdBuilder);
-        QuestionDetailsResponse questionResponse = new QuestionDetailsResponse()
-                .id(uuIdBuilder.toString())
-                .content(contentBuilder.toString());
-        return new ResponseEntity<QuestionDetailsResponse>(questionResponse, HttpStatus.OK);
+        return new ResponseEntity<QuestionListResponse>(toQuestionListResponse(questionPage), HttpStatus.OK);
     }
 
 
     /**
-     * private utility method for appending the uuid of questions.
+     * private utility method for mapping a page of questions to the response model.
      *
-     * @param questionList List of questions
-     * @param uuIdBuilder  StringBuilder object
+     * @param questionPage page of questions
+     * @return QuestionListResponse with one entry per question
      */
-    public static final StringBuilder getUuIdString(List<Question> questionList, StringBuilder uuIdBuilder) {
-
-        for (Question questionObject : questionList) {
-            uuIdBuilder.append(questionObject.getUuid()).append(",");
+    private static QuestionListResponse toQuestionListResponse(KeysetPage<QuestionSummary> questionPage) {
+        QuestionListResponse questionListResponse = new QuestionListResponse();
+        for (QuestionSummary question : questionPage.getItems()) {
+            questionListResponse.addQuestionsItem(new QuestionDetailsResponse().id(question.getUuid()).content(question.getContent()).answerCount(question.getAnswerCount()));
         }
-        return uuIdBuilder;
-    }
-
-    /**
-     * private utility method for providing contents string in appended format
-     *
-     * @param questionList list of questions
-     * @param builder      StringBuilder with appended content list.
-     */
-    public static final StringBuilder getContentsString(List<Question> questionList, StringBuilder builder) {
-        for (Question questionObject : questionList) {
-            builder.append(questionObject.getContent()).append(",");
+        if (questionPage.getNextCursor() != null) {
+            questionListResponse.nextCursor(questionPage.getNextCursor().encode());
         }
-        return builder;
+        return questionListResponse;
     }
 }
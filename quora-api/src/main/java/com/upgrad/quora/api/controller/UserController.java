@@ -2,10 +2,14 @@ package com.upgrad.quora.api.controller;
 
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.AuthenticationService;
+import com.upgrad.quora.service.business.SignInRateLimiter;
 import com.upgrad.quora.service.business.UserBusinessService;
+import com.upgrad.quora.service.business.UuidGenerator;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthenticationFailedException;
+import com.upgrad.quora.service.exception.RateLimitExceededException;
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
 import com.upgrad.quora.service.exception.SignOutRestrictedException;
 import com.upgrad.quora.service.exception.SignUpRestrictedException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,9 +22,10 @@ import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RestController;
 
-
-import java.util.UUID;
+import javax.servlet.http.HttpServletRequest;
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @RestController
 @RequestMapping("/")
@@ -32,11 +37,17 @@ public class UserController {
     @Autowired
     private AuthenticationService authenticationService;
 
+    @Autowired
+    private SignInRateLimiter signInRateLimiter;
+
+    @Autowired
+    private UuidGenerator uuidGenerator;
+
 
     @RequestMapping(method = RequestMethod.POST, path = "/users/signup", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE, produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
     public ResponseEntity<?> signup(final SignupUserRequest signupUserRequest)  {
         final UserEntity userEntity = new UserEntity();
-        userEntity.setUuid(UUID.randomUUID().toString());
+        userEntity.setUuid(uuidGenerator.generate().toString());
         userEntity.setFirstName(signupUserRequest.getFirstName());
         userEntity.setLastName(signupUserRequest.getLastName());
         userEntity.setUserName(signupUserRequest.getUserName());
@@ -59,23 +70,69 @@ public class UserController {
         }
     }
 
+    /**
+     * Sign in is served asynchronously: the request thread is released while the password is hashed on the
+     * dedicated hashing pool, and a saturated pool answers with 503 straight away.
+     * Attempts over the rate limit of the username or client address are answered with 429 before any hashing.
+     */
     @RequestMapping(method = RequestMethod.POST, path = "/users/signin" , produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<?> signin(@RequestHeader("authorization") final String authorization ) throws AuthenticationFailedException {
+    public CompletableFuture<ResponseEntity<?>> signin(@RequestHeader("authorization") final String authorization, final HttpServletRequest request) {
         byte[] decode = Base64.getDecoder().decode(authorization);
         String decodedText = new String(decode);
         String[] decodedArray = decodedText.split(":");
+        try {
+            signInRateLimiter.acquire(decodedArray[0], request.getRemoteAddr());
+        } catch (RateLimitExceededException rle) {
+            ErrorResponse errorResponse = new ErrorResponse().message(rle.getErrorMessage()).code(rle.getCode()).rootCause(rle.getMessage());
+            return CompletableFuture.completedFuture(new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.TOO_MANY_REQUESTS));
+        }
+        return authenticationService.authenticateAsync(decodedArray[0], decodedArray[1])
+                .handle((userAuthToken, failure) -> signinResponse(userAuthToken, failure));
+    }
+
+    private ResponseEntity<?> signinResponse(final UserAuthEntity userAuthToken, final Throwable failure) {
+        if (failure != null) {
+            final Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+            if (cause instanceof AuthenticationFailedException) {
+                AuthenticationFailedException afe = (AuthenticationFailedException) cause;
+                ErrorResponse errorResponse = new ErrorResponse().message(afe.getErrorMessage()).code(afe.getCode()).rootCause(afe.getMessage());
+                return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.BAD_REQUEST);
+            }
+            if (cause instanceof ServiceUnavailableException) {
+                ServiceUnavailableException sue = (ServiceUnavailableException) cause;
+                ErrorResponse errorResponse = new ErrorResponse().message(sue.getErrorMessage()).code(sue.getCode()).rootCause(sue.getMessage());
+                return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            throw new CompletionException(cause);
+        }
+        UserEntity user = userAuthToken.getUser();
+        SigninResponse signinResponse = new SigninResponse().id(user.getUuid())
+                .message("SIGNED IN SUCCESSFULLY");
+        HttpHeaders headers = new HttpHeaders();
+        headers.add("access-token", userAuthToken.getAccessToken());
+        headers.add("refresh-token", userAuthToken.getIssuedRefreshToken());
+        return new ResponseEntity<SigninResponse>(signinResponse, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Exchanges a refresh token for a new access token and refresh token, so clients can extend a session
+     * without sending the password again.
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "/users/refresh", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<?> refresh(@RequestHeader("refresh-token") final String refreshToken) {
         UserAuthEntity userAuthToken;
         try {
-            userAuthToken = authenticationService.authenticate(decodedArray[0], decodedArray[1]);
-        }catch(AuthenticationFailedException afe){
+            userAuthToken = authenticationService.refresh(refreshToken);
+        } catch (AuthenticationFailedException afe) {
             ErrorResponse errorResponse = new ErrorResponse().message(afe.getErrorMessage()).code(afe.getCode()).rootCause(afe.getMessage());
-            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.BAD_REQUEST);
+            return new ResponseEntity<ErrorResponse>(errorResponse, HttpStatus.UNAUTHORIZED);
         }
         UserEntity user = userAuthToken.getUser();
         SigninResponse signinResponse = new SigninResponse().id(user.getUuid())
-                .message("SIGNED IN SUCCESSFULLY");
+                .message("SESSION REFRESHED SUCCESSFULLY");
         HttpHeaders headers = new HttpHeaders();
         headers.add("access-token", userAuthToken.getAccessToken());
+        headers.add("refresh-token", userAuthToken.getIssuedRefreshToken());
         return new ResponseEntity<SigninResponse>(signinResponse, headers, HttpStatus.OK);
     }
 
@@ -0,0 +1,142 @@
+package com.upgrad.quora.api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.upgrad.quora.api.config.ExportConfiguration;
+import com.upgrad.quora.service.business.ExportService;
+import com.upgrad.quora.service.business.UserBusinessService;
+import com.upgrad.quora.service.entity.Answer;
+import com.upgrad.quora.service.entity.Question;
+import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ExportControllerTest {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final ExportController controller = new ExportController();
+
+    private ThreadPoolTaskExecutor executor;
+
+    private MockMvc mvc;
+
+    @Before
+    public void setUp() {
+        executor = new ExportConfiguration().exportTaskExecutor(1);
+        executor.initialize();
+        controller.userBusinessService = mock(UserBusinessService.class);
+        controller.exportService = mock(ExportService.class);
+        controller.objectMapper = new ObjectMapper();
+        controller.exportTaskExecutor = executor;
+        controller.exportTimeoutMillis = 10_000;
+        controller.initExportPermits();
+        mvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    //This test case passes when the questions and answers are streamed as NDJSON lines, questions first.
+    @Test
+    public void exportStreamsNdjson() throws Exception {
+        doAnswer(invocation -> {
+            final Question question = question();
+            invocation.<Consumer<Question>>getArgument(0).accept(question);
+            invocation.<Consumer<Answer>>getArgument(1).accept(answer(question));
+            return null;
+        }).when(controller.exportService).exportQuestionsAndAnswers(any(), any());
+
+        final MvcResult result = mvc.perform(get("/question/export").header("authorization", "token").accept(NDJSON))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NDJSON))
+                .andExpect(content().string("{\"type\":\"question\",\"id\":\"question\",\"content\":\"content\",\"date\":null,\"user_id\":\"user\"}\n"
+                        + "{\"type\":\"answer\",\"id\":\"answer\",\"question_id\":\"question\",\"answer\":\"answer\",\"date\":null,\"user_id\":\"user\"}\n"));
+    }
+
+    //This test case passes when a client accepting only NDJSON gets the 403 of an invalid access token as JSON.
+    @Test
+    public void exportWithNonExistingAccessTokenIsForbidden() throws Exception {
+        when(controller.userBusinessService.getUserByAccessToken("non_existing_access_token"))
+                .thenThrow(new AuthorizationFailedException("ATHR-001", "User has not signed in"));
+
+        final MvcResult result = mvc.perform(get("/question/export").header("authorization", "non_existing_access_token").accept(NDJSON))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(result))
+                .andExpect(status().isForbidden())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("code").value("ATHR-001"));
+    }
+
+    //This test case passes when an export requested while every export thread is busy is answered with 503,
+    //and exports are admitted again once the running one ended.
+    @Test
+    public void exportBeyondThreadsIsUnavailable() throws Exception {
+        final CountDownLatch running = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            running.countDown();
+            release.await();
+            return null;
+        }).when(controller.exportService).exportQuestionsAndAnswers(any(), any());
+
+        final MvcResult first = mvc.perform(get("/question/export").header("authorization", "token").accept(NDJSON))
+                .andExpect(request().asyncStarted()).andReturn();
+        assertTrue(running.await(10, TimeUnit.SECONDS));
+        mvc.perform(get("/question/export").header("authorization", "token").accept(NDJSON))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("code").value("GEN-002"));
+
+        release.countDown();
+        mvc.perform(asyncDispatch(first)).andExpect(status().isOk());
+        final MvcResult next = mvc.perform(get("/question/export").header("authorization", "token").accept(NDJSON))
+                .andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(next)).andExpect(status().isOk());
+    }
+
+    private static Question question() {
+        final UserEntity user = new UserEntity();
+        user.setUuid("user");
+        final Question question = new Question();
+        question.setUuid("question");
+        question.setContent("content");
+        question.setUser(user);
+        return question;
+    }
+
+    private static Answer answer(final Question question) {
+        final Answer answer = new Answer();
+        answer.setUuid("answer");
+        answer.setAnswer("answer");
+        answer.setQuestion(question);
+        answer.setUser(question.getUser());
+        return answer;
+    }
+}
@@ -0,0 +1,10 @@
+--refresh tokens are stored as their hash next to the session they renew
+ALTER TABLE USER_AUTH ADD COLUMN IF NOT EXISTS REFRESH_TOKEN VARCHAR(64) NULL;
+ALTER TABLE USER_AUTH ADD COLUMN IF NOT EXISTS REFRESH_EXPIRES_AT TIMESTAMP NULL;
+
+--refresh tokens are looked up by their hash
+CREATE UNIQUE INDEX IF NOT EXISTS USER_AUTH_REFRESH_TOKEN_IDX ON USER_AUTH(REFRESH_TOKEN);
+
+--indexes used by the session reaper to find expired and signed out sessions
+CREATE INDEX IF NOT EXISTS USER_AUTH_EXPIRES_AT_IDX ON USER_AUTH(EXPIRES_AT);
+CREATE INDEX IF NOT EXISTS USER_AUTH_LOGOUT_AT_IDX ON USER_AUTH(LOGOUT_AT) WHERE LOGOUT_AT IS NOT NULL;
@@ -0,0 +1,6 @@
+--indexes serving the keyset paginated question listings, newest first
+CREATE INDEX IF NOT EXISTS QUESTION_DATE_ID_IDX ON QUESTION(date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS QUESTION_USER_DATE_ID_IDX ON QUESTION(user_id, date DESC, id DESC);
+
+--full-text index over the question content, maintained by the database on every insert and update
+CREATE INDEX IF NOT EXISTS QUESTION_CONTENT_FTS_IDX ON QUESTION USING GIN (to_tsvector('english', content));
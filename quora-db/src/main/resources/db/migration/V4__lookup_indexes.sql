@@ -0,0 +1,17 @@
+--uuids are the public identifiers every lookup by id goes through ("userByUuid", "getQuestion", "getAnswerForUuId")
+CREATE UNIQUE INDEX IF NOT EXISTS USERS_UUID_IDX ON USERS(uuid);
+CREATE UNIQUE INDEX IF NOT EXISTS QUESTION_UUID_IDX ON QUESTION(uuid);
+CREATE UNIQUE INDEX IF NOT EXISTS ANSWER_UUID_IDX ON ANSWER(uuid);
+
+--every authorized request resolves its session by access token ("authWithUserByAccessToken")
+CREATE UNIQUE INDEX IF NOT EXISTS USER_AUTH_ACCESS_TOKEN_IDX ON USER_AUTH(ACCESS_TOKEN);
+
+--sessions opened since a point in time are replayed into the access token filter ("accessTokensLoggedInSince")
+CREATE INDEX IF NOT EXISTS USER_AUTH_LOGIN_AT_IDX ON USER_AUTH(LOGIN_AT);
+
+--foreign keys, used by joins and by the cascading deletes of users and questions;
+--QUESTION(user_id) is covered by the leading column of QUESTION_USER_DATE_ID_IDX,
+--ANSWER(question_id) leads an index ordered by date and id, so the answers of a question ("getAnsersForQuestion") can be read newest first without a sort
+CREATE INDEX IF NOT EXISTS USER_AUTH_USER_ID_IDX ON USER_AUTH(USER_ID);
+CREATE INDEX IF NOT EXISTS ANSWER_QUESTION_DATE_ID_IDX ON ANSWER(question_id, date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ANSWER_USER_ID_IDX ON ANSWER(user_id);
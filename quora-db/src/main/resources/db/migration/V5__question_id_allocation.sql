@@ -0,0 +1,3 @@
+--question ids are allocated by the application in blocks of 50 (pooled optimizer), which lets inserts be batched;
+--the increment must match the allocationSize of the question id generator
+ALTER SEQUENCE question_id_seq INCREMENT BY 50;
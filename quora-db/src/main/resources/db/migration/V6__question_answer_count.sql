@@ -0,0 +1,4 @@
+--number of answers of every question, kept up to date by the application through periodic batches
+--and set to the actual number of answers by its periodic recount
+ALTER TABLE QUESTION ADD COLUMN IF NOT EXISTS answer_count INTEGER NOT NULL DEFAULT 0;
+UPDATE QUESTION q SET answer_count = (SELECT count(*) FROM ANSWER a WHERE a.question_id = q.id);
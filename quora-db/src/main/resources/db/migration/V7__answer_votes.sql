@@ -0,0 +1,9 @@
+--one vote per user and answer, 1 for an upvote and -1 for a downvote
+CREATE TABLE IF NOT EXISTS ANSWER_VOTE(answer_id INTEGER NOT NULL, user_id INTEGER NOT NULL, vote SMALLINT NOT NULL, PRIMARY KEY(answer_id, user_id), FOREIGN KEY (answer_id) REFERENCES ANSWER(id) ON DELETE CASCADE, FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE);
+CREATE INDEX IF NOT EXISTS ANSWER_VOTE_USER_ID_IDX ON ANSWER_VOTE(user_id);
+
+--upvotes minus downvotes of every answer, moved by the application with every batch of votes
+ALTER TABLE ANSWER ADD COLUMN IF NOT EXISTS score INTEGER NOT NULL DEFAULT 0;
+
+--answers of a question are listed highest score first
+CREATE INDEX IF NOT EXISTS ANSWER_QUESTION_SCORE_ID_IDX ON ANSWER(question_id, score DESC, id DESC);
@@ -0,0 +1,3 @@
+--deleted users whose server signed tokens may not have expired yet, read by every instance verifying tokens statelessly
+CREATE TABLE IF NOT EXISTS REVOKED_USER(UUID VARCHAR(200) PRIMARY KEY, REVOKED_AT TIMESTAMP NOT NULL, EXPIRES_AT TIMESTAMP NOT NULL);
+CREATE INDEX IF NOT EXISTS REVOKED_USER_REVOKED_AT_IDX ON REVOKED_USER(REVOKED_AT);
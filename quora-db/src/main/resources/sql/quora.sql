@@ -6,6 +6,8 @@ INSERT INTO users(
 	id, uuid, firstname, lastname, username, email, password, salt, country, aboutme, dob, role, contactnumber)
 	VALUES (1024,'rdtrdtdyt','Abhi','Mahajan','abhi','a@gmail.com','507FF5FED1CAC746','8Xt6jxoCI3MWsVaKY/1ySAp2qzlb2Z7P89+vDrb1o6U=', 'India' ,'I am @ UpGrad' ,'22-10-1995' , 'admin' , '1222333333' );
 
+CREATE UNIQUE INDEX IF NOT EXISTS USERS_UUID_IDX ON USERS(uuid);
+
 --USER_AUTH table is created to store the login information of all the users
 DROP TABLE IF EXISTS USER_AUTH CASCADE;
 CREATE TABLE IF NOT EXISTS USER_AUTH(
@@ -15,16 +17,63 @@ CREATE TABLE IF NOT EXISTS USER_AUTH(
 	ACCESS_TOKEN VARCHAR(500) NOT NULL,
 	EXPIRES_AT TIMESTAMP NOT NULL,
 	LOGIN_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
-	LOGOUT_AT TIMESTAMP NULL
+	LOGOUT_AT TIMESTAMP NULL,
+	REFRESH_TOKEN VARCHAR(64) NULL,
+	REFRESH_EXPIRES_AT TIMESTAMP NULL
 );
 
 ALTER TABLE USER_AUTH ADD CONSTRAINT FK_USER_AUTH_USER_ID FOREIGN KEY(USER_ID) REFERENCES USERS(ID) ON DELETE CASCADE ;
 
+--indexes used by the session reaper to find expired and signed out sessions
+CREATE INDEX IF NOT EXISTS USER_AUTH_EXPIRES_AT_IDX ON USER_AUTH(EXPIRES_AT);
+CREATE INDEX IF NOT EXISTS USER_AUTH_LOGOUT_AT_IDX ON USER_AUTH(LOGOUT_AT) WHERE LOGOUT_AT IS NOT NULL;
+
+--refresh tokens are looked up by their hash
+CREATE UNIQUE INDEX IF NOT EXISTS USER_AUTH_REFRESH_TOKEN_IDX ON USER_AUTH(REFRESH_TOKEN);
+
+--sessions are looked up by access token, and by user on cascading deletes
+CREATE UNIQUE INDEX IF NOT EXISTS USER_AUTH_ACCESS_TOKEN_IDX ON USER_AUTH(ACCESS_TOKEN);
+CREATE INDEX IF NOT EXISTS USER_AUTH_LOGIN_AT_IDX ON USER_AUTH(LOGIN_AT);
+CREATE INDEX IF NOT EXISTS USER_AUTH_USER_ID_IDX ON USER_AUTH(USER_ID);
+
+--REVOKED_USER table is created to store the deleted users whose server signed tokens or cached sessions may not have expired yet
+DROP TABLE IF EXISTS REVOKED_USER CASCADE;
+CREATE TABLE IF NOT EXISTS REVOKED_USER(UUID VARCHAR(200) PRIMARY KEY, REVOKED_AT TIMESTAMP NOT NULL, EXPIRES_AT TIMESTAMP NOT NULL);
+
+--revocations are read by the time they were made
+CREATE INDEX IF NOT EXISTS REVOKED_USER_REVOKED_AT_IDX ON REVOKED_USER(REVOKED_AT);
+
 --QUESTION table is created to store the questions related information posted by any user in the Application
 DROP TABLE IF EXISTS QUESTION CASCADE;
-CREATE TABLE IF NOT EXISTS QUESTION(id SERIAL,uuid VARCHAR(200) NOT NULL, content VARCHAR(500) NOT NULL, date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE);
+CREATE TABLE IF NOT EXISTS QUESTION(id SERIAL,uuid VARCHAR(200) NOT NULL, content VARCHAR(500) NOT NULL, date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, answer_count INTEGER NOT NULL DEFAULT 0, PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE);
+
+CREATE UNIQUE INDEX IF NOT EXISTS QUESTION_UUID_IDX ON QUESTION(uuid);
+
+--question ids are allocated by the application in blocks of 50, matching the allocationSize of the question id generator
+ALTER SEQUENCE question_id_seq INCREMENT BY 50;
+
+--indexes serving the keyset paginated question listings, newest first
+CREATE INDEX IF NOT EXISTS QUESTION_DATE_ID_IDX ON QUESTION(date DESC, id DESC);
+CREATE INDEX IF NOT EXISTS QUESTION_USER_DATE_ID_IDX ON QUESTION(user_id, date DESC, id DESC);
+
+--full-text index over the question content, maintained by the database on every insert and update
+CREATE INDEX IF NOT EXISTS QUESTION_CONTENT_FTS_IDX ON QUESTION USING GIN (to_tsvector('english', content));
 
 
 --ANSWER table is created to store the answers related information in reply to any question posted in the Application
 DROP TABLE IF EXISTS ANSWER CASCADE;
-CREATE TABLE IF NOT EXISTS ANSWER(id SERIAL,uuid VARCHAR(200) NOT NULL, ans VARCHAR(255) NOT NULL,date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, question_id INTEGER NOT NULL , PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE, FOREIGN KEY (question_id) REFERENCES QUESTION(id) ON DELETE CASCADE);
+CREATE TABLE IF NOT EXISTS ANSWER(id SERIAL,uuid VARCHAR(200) NOT NULL, ans VARCHAR(255) NOT NULL,date TIMESTAMP NOT NULL , user_id INTEGER NOT NULL, question_id INTEGER NOT NULL , score INTEGER NOT NULL DEFAULT 0, PRIMARY KEY(id), FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE, FOREIGN KEY (question_id) REFERENCES QUESTION(id) ON DELETE CASCADE);
+
+CREATE UNIQUE INDEX IF NOT EXISTS ANSWER_UUID_IDX ON ANSWER(uuid);
+--answers of a question are looked up newest first, and by question on cascading deletes
+CREATE INDEX IF NOT EXISTS ANSWER_QUESTION_DATE_ID_IDX ON ANSWER(question_id, date DESC, id DESC);
+--answers of a question are listed highest score first
+CREATE INDEX IF NOT EXISTS ANSWER_QUESTION_SCORE_ID_IDX ON ANSWER(question_id, score DESC, id DESC);
+CREATE INDEX IF NOT EXISTS ANSWER_USER_ID_IDX ON ANSWER(user_id);
+
+
+--ANSWER_VOTE table is created to store the vote of every user on every answer, 1 for an upvote and -1 for a downvote
+DROP TABLE IF EXISTS ANSWER_VOTE CASCADE;
+CREATE TABLE IF NOT EXISTS ANSWER_VOTE(answer_id INTEGER NOT NULL, user_id INTEGER NOT NULL, vote SMALLINT NOT NULL, PRIMARY KEY(answer_id, user_id), FOREIGN KEY (answer_id) REFERENCES ANSWER(id) ON DELETE CASCADE, FOREIGN KEY (user_id) REFERENCES USERS(id) ON DELETE CASCADE);
+
+CREATE INDEX IF NOT EXISTS ANSWER_VOTE_USER_ID_IDX ON ANSWER_VOTE(user_id);
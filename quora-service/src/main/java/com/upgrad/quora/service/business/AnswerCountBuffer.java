@@ -0,0 +1,192 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.QuestionDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Maintains QUESTION.ANSWER_COUNT without updating the question row in the transaction of every answer.
+ * Changes of the counts are summed in memory per question once their transaction commits and written as periodic
+ * JDBC batches. Changes still in memory are lost if the process stops abruptly, and a change committed while a range
+ * is being recounted may be counted twice, hence a periodic recount sets every count to the actual number of answers.
+ */
+@Component
+public class AnswerCountBuffer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnswerCountBuffer.class);
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final int batchSize;
+    private final boolean recountEnabled;
+    private final int recountBatchSize;
+
+    //changes which are not yet written, by question id; entries summing up to zero are dropped
+    private final Map<Integer, Long> pending = new ConcurrentHashMap<>();
+
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder corrected = new LongAdder();
+
+    private volatile long lastRecountMillis;
+
+    @Autowired
+    public AnswerCountBuffer(@Value("${quora.question.answer-count.batch-size:500}") final int batchSize,
+                             @Value("${quora.question.answer-count.recount-enabled:true}") final boolean recountEnabled,
+                             @Value("${quora.question.answer-count.recount-batch-size:1000}") final int recountBatchSize) {
+        this.batchSize = batchSize;
+        this.recountEnabled = recountEnabled;
+        this.recountBatchSize = recountBatchSize;
+    }
+
+    /**
+     * method used for changing the answer count of a question once the surrounding transaction commits.
+     * Outside a transaction the change is buffered at once.
+     *
+     * @param questionId id of the question
+     * @param delta      number of answers added, negative for removed answers
+     */
+    public void add(final Integer questionId, final long delta) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            buffer(questionId, delta);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                buffer(questionId, delta);
+            }
+        });
+    }
+
+    private void buffer(final Integer questionId, final long delta) {
+        pending.merge(questionId, delta, (current, change) -> current + change == 0 ? null : current + change);
+    }
+
+    /**
+     * Writes the pending changes in batches of batch-size, each batch in one transaction.
+     * Rows are updated in id order, so that batches never wait on each other's row locks in opposite orders.
+     * A failed batch and the ones after it are put back and retried by the next run.
+     */
+    @Scheduled(fixedDelayString = "${quora.question.answer-count.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        final TreeMap<Integer, Long> deltas = new TreeMap<>();
+        for (Integer questionId : pending.keySet()) {
+            final Long delta = pending.remove(questionId);
+            if (delta != null) {
+                deltas.put(questionId, delta);
+            }
+        }
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final List<Map.Entry<Integer, Long>> entries = new ArrayList<>(deltas.entrySet());
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            final Map<Integer, Long> batch = new LinkedHashMap<>();
+            for (Map.Entry<Integer, Long> entry : entries.subList(from, Math.min(from + batchSize, entries.size()))) {
+                batch.put(entry.getKey(), entry.getValue());
+            }
+            try {
+                transactionTemplate.execute(status -> {
+                    questionDao.addAnswerCounts(batch);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                LOGGER.error("Writing {} answer count changes failed, retrying with the next flush", entries.size() - from, e);
+                for (Map.Entry<Integer, Long> entry : entries.subList(from, entries.size())) {
+                    buffer(entry.getKey(), entry.getValue());
+                }
+                return;
+            }
+            written.add(batch.size());
+            batches.increment();
+        }
+    }
+
+    /**
+     * Sets the answer count of every question to its actual number of answers, a range of recount-batch-size
+     * questions per transaction. The buffer is flushed before every range, so that changes written later
+     * do not apply twice to counts the recount already includes.
+     */
+    @Scheduled(initialDelayString = "${quora.question.answer-count.recount-initial-delay-ms:60000}",
+            fixedDelayString = "${quora.question.answer-count.recount-interval-ms:3600000}")
+    public synchronized void recount() {
+        if (!recountEnabled) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long runCorrected = 0;
+        try {
+            int afterId = 0;
+            while (true) {
+                flush();
+                final int from = afterId;
+                final Integer upTo = transactionTemplate.execute(status -> questionDao.getQuestionIdBoundary(from, recountBatchSize));
+                if (upTo == null) {
+                    break;
+                }
+                final Integer fixed = transactionTemplate.execute(status -> questionDao.recountAnswers(from, upTo));
+                runCorrected += fixed;
+                corrected.add(fixed);
+                afterId = upTo;
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Answer recount failed after correcting {} questions", runCorrected, e);
+        }
+        lastRecountMillis = System.currentTimeMillis() - start;
+        if (runCorrected > 0) {
+            LOGGER.info("Answer recount corrected {} questions in {} ms", runCorrected, lastRecountMillis);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * @return number of question counts the recounts found off
+     */
+    public long getCorrectedCount() {
+        return corrected.sum();
+    }
+
+    public long getLastRecountMillis() {
+        return lastRecountMillis;
+    }
+}
@@ -1,21 +1,32 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.AnswerListCache;
+import com.upgrad.quora.service.common.KeysetCursor;
+import com.upgrad.quora.service.common.PageCursor;
+import com.upgrad.quora.service.common.ScoreCursor;
+import com.upgrad.quora.service.common.Pagination;
 import com.upgrad.quora.service.dao.AnswerDao;
-import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.dto.AnswerSummary;
+import com.upgrad.quora.service.dto.QuestionAnswersPage;
 import com.upgrad.quora.service.entity.Answer;
-import com.upgrad.quora.service.entity.Question;
 import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidPageRequestException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
-import com.upgrad.quora.service.type.ActionType;
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
+import com.upgrad.quora.service.type.AnswerSortType;
 import com.upgrad.quora.service.type.RoleType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.ZonedDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 
 @Service
 public class AnswerService {
@@ -24,11 +35,19 @@ public class AnswerService {
     AnswerDao answerDao;
 
     @Autowired
-    QuestionDao questionDao;
+    AnswerListCache answerListCache;
+
+    @Autowired
+    AnswerCountBuffer answerCountBuffer;
+
+    @Autowired
+    AnswerVoteBuffer answerVoteBuffer;
 
     @Transactional(propagation = Propagation.REQUIRED)
     public Answer createAnswer(Answer answer) {
-        return answerDao.createAnswer(answer);
+        final Answer createdAnswer = answerDao.createAnswer(answer);
+        answerCountBuffer.add(answer.getQuestion().getId(), 1);
+        return createdAnswer;
     }
 
     @Transactional(propagation = Propagation.REQUIRED)
@@ -41,55 +60,131 @@ public class AnswerService {
         }
     }
 
+    /**
+     * method used for editing an answer, only the owner of the answer may edit it.
+     * The ownership check and the edit are a single statement; only when nothing was edited
+     * the answer is looked up to tell a missing answer from one owned by another user.
+     *
+     * @param answerUuId     uuid of the answer
+     * @param answer         new answer text
+     * @param authorizedUser authorized user instance
+     * @throws AnswerNotFoundException      if the answer does not exist
+     * @throws AuthorizationFailedException if the user is not the owner of the answer
+     */
     @Transactional(propagation = Propagation.REQUIRED)
-    public Answer isUserAnswerOwner(String answerUuId, UserAuthEntity authorizedUser, ActionType actionType) throws AnswerNotFoundException, AuthorizationFailedException {
-        Answer answer = answerDao.getAnswerForUuId(answerUuId);
+    public void editAnswer(String answerUuId, String answer, UserAuthEntity authorizedUser) throws AnswerNotFoundException, AuthorizationFailedException {
+        if (!answerDao.editAnswer(answerUuId, authorizedUser.getUser().getId(), answer, ZonedDateTime.now())) {
+            checkAnswerExists(answerUuId);
+            throw new AuthorizationFailedException("ATHR-003", "Only the answer owner can edit the answer");
+        }
+    }
 
-        if (answer == null) {
-            //if provided answer uuid is not present in database, then throw this exception
-            throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
-        } else if (!authorizedUser.getUser().getUuid().equals(answer.getUser().getUuid())) {
-            if (ActionType.EDIT_ANSWER.equals(actionType)) {
-                //if users dont match and action is for editing then throw exception with below message
-                throw new AuthorizationFailedException("ATHR-003", "Only the answer owner can edit the answer");
-            } else {
-                //means we are in DELETE action and we should throw separate message for the exception
-                throw new AuthorizationFailedException("ATHR-003", "Only the answer owner or admin can delete the answer");
-            }
-        } else if ((!authorizedUser.getUser().getRole().equals(RoleType.admin)
-                && !authorizedUser.getUser().getUuid().equals(answer.getUser().getUuid()))
-                && ActionType.DELETE_ANSWER.equals(actionType)) {
-            //In delete mode if role is not admin or the user is not owner of the answer then throw below exception
+    /**
+     * method used for deleting an answer, only the owner of the answer or an admin may delete it.
+     * The ownership check and the delete are a single statement; only when nothing was deleted
+     * the answer is looked up to tell a missing answer from one owned by another user.
+     *
+     * @param answerUuId     uuid of the answer
+     * @param authorizedUser authorized user instance
+     * @throws AnswerNotFoundException      if the answer does not exist
+     * @throws AuthorizationFailedException if the user is neither the owner of the answer nor an admin
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public void deleteAnswer(String answerUuId, UserAuthEntity authorizedUser) throws AnswerNotFoundException, AuthorizationFailedException {
+        final UserEntity user = authorizedUser.getUser();
+        final Integer ownerId = RoleType.admin.name().equals(user.getRole()) ? null : user.getId();
+        final Integer questionId = answerDao.deleteAnswer(answerUuId, ownerId);
+        if (questionId == null) {
+            checkAnswerExists(answerUuId);
             throw new AuthorizationFailedException("ATHR-003", "Only the answer owner or admin can delete the answer");
-        } else {
-            return answer;
         }
+        answerCountBuffer.add(questionId, -1);
     }
 
-    @Transactional(propagation = Propagation.REQUIRED)
-    public Answer editAnswer(Answer answer) {
-        return answerDao.editAnswer(answer);
+    /**
+     * method used for voting on an answer. A user has one vote per answer, a later vote replaces the earlier one.
+     * The answer is resolved through the answer cache and the vote is written with the next batch of AnswerVoteBuffer,
+     * hence voting neither opens a transaction nor waits for the database.
+     *
+     * @param answerUuId     uuid of the answer
+     * @param up             true for an upvote, false for a downvote
+     * @param authorizedUser authorized user instance
+     * @throws AnswerNotFoundException     if the answer does not exist
+     * @throws ServiceUnavailableException if too many votes are waiting to be written
+     */
+    public void voteAnswer(final String answerUuId, final boolean up, final UserAuthEntity authorizedUser) throws AnswerNotFoundException, ServiceUnavailableException {
+        final Answer answer = answerDao.getAnswerForUuId(answerUuId);
+        if (answer == null) {
+            throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
+        }
+        answerVoteBuffer.vote(answer.getId(), authorizedUser.getUser().getId(), up);
     }
 
-    @Transactional(propagation = Propagation.REQUIRED)
-    public void deleteAnswer(Answer answer) {
-        answerDao.deleteAnswer(answer);
+    private void checkAnswerExists(final String answerUuId) throws AnswerNotFoundException {
+        if (!answerDao.answerExists(answerUuId)) {
+            throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
+        }
     }
 
-    @Transactional(propagation = Propagation.REQUIRED)
-    public List<Answer> getAnswersForQuestion(String questionUuId) throws AnswerNotFoundException, InvalidQuestionException {
-        //check if the question exists in question database
-        Question question = questionDao.getQuestion(questionUuId);
-        if (question == null) {
+    /**
+     * method used for getting the content of a question and a page of its answers, highest score first or most recent first.
+     * Pages are read through the answer listing cache, which AnswerDao and QuestionDao invalidate on every write
+     * to the question or its answers; votes invalidate only the score ordered pages, hence the scores shown on
+     * the most recent first pages may lag behind by up to the time to live of the cache.
+     * This runs outside a transaction, so that requests served from the cache or
+     * waiting for the load of another request do not hold a database connection.
+     *
+     * @param questionUuId uuid of the question
+     * @param sort         score or newest, null for score
+     * @param cursor       cursor returned with the previous page, null for the first page
+     * @param limit        page size, null for the default
+     * @return question content with the page of answers
+     * @throws InvalidQuestionException    if the question does not exist
+     * @throws InvalidPageRequestException if the order, cursor or page size is invalid
+     */
+    public QuestionAnswersPage getAnswersForQuestion(final String questionUuId, final String sort, final String cursor, final Integer limit) throws InvalidQuestionException, InvalidPageRequestException {
+        final AnswerSortType sortType = Pagination.answerSort(sort);
+        final int pageSize = Pagination.pageSize(limit);
+        final QuestionAnswersPage page;
+        if (sortType == AnswerSortType.newest) {
+            final KeysetCursor after = Pagination.cursor(cursor);
+            page = answerListCache.get(questionUuId, sortType, pageKey(after, pageSize),
+                    () -> answersPage(answerDao.getNewestAnswersPageForQuestion(questionUuId, after, pageSize + 1), pageSize, AnswerService::dateCursorOf));
+        } else {
+            final ScoreCursor after = Pagination.scoreCursor(cursor);
+            page = answerListCache.get(questionUuId, sortType, pageKey(after, pageSize),
+                    () -> answersPage(answerDao.getAnswersPageForQuestion(questionUuId, after, pageSize + 1), pageSize, AnswerService::cursorOf));
+        }
+        if (page == null) {
             throw new InvalidQuestionException("QUES-001", "The question with entered uuid whose details are to be seen does not exist");
         }
+        return page;
+    }
 
-        //get the list of Answers for question
-        List<Answer> answerList = answerDao.getAnswersForQuestion(questionUuId);
-        if (answerList == null) {
-            throw new AnswerNotFoundException("OTHR-001", "No Answers available for the given question uuid");
-        } else {
-            return answerList;
+    private static String pageKey(final PageCursor after, final int pageSize) {
+        return (after == null ? "" : after.encode()) + "/" + pageSize;
+    }
+
+    /**
+     * @return the page or null if the question does not exist
+     */
+    private static QuestionAnswersPage answersPage(List<AnswerSummary> rows, final int pageSize,
+                                                   final Function<AnswerSummary, ? extends PageCursor> cursorOf) {
+        if (rows.isEmpty()) {
+            return null;
         }
+        final String questionContent = rows.get(0).getQuestionContent();
+        if (!rows.get(0).isAnswer()) {
+            rows = Collections.emptyList();
+        }
+        return new QuestionAnswersPage(questionContent, Pagination.page(rows, pageSize, cursorOf));
+    }
+
+    private static ScoreCursor cursorOf(final AnswerSummary answer) {
+        return new ScoreCursor(answer.getScore(), answer.getId());
+    }
+
+    private static KeysetCursor dateCursorOf(final AnswerSummary answer) {
+        return new KeysetCursor(answer.getDate(), answer.getId());
     }
 }
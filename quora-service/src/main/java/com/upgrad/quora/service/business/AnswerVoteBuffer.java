@@ -0,0 +1,156 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects answer votes in memory and writes them to ANSWER_VOTE and ANSWER.SCORE as periodic batches,
+ * instead of one transaction locking the answer row per vote. Repeated votes of a user on an answer within
+ * a flush interval are coalesced in memory, the vote table keeps one vote per user and answer, and a batch
+ * changes the score of an answer once by the sum of its changed votes.
+ * While batches fail the votes stay held, up to max-pending votes, after which further votes are turned away
+ * rather than letting the held votes grow until the heap runs out.
+ */
+@Component
+public class AnswerVoteBuffer {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AnswerVoteBuffer.class);
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final int batchSize;
+
+    private final int maxPending;
+
+    private final VoteAccumulator votes;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rescored = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+
+    @Autowired
+    public AnswerVoteBuffer(@Value("${quora.answer.vote.batch-size:5000}") final int batchSize,
+                            @Value("${quora.answer.vote.stripes:0}") final int stripes,
+                            @Value("${quora.answer.vote.max-pending:1000000}") final int maxPending) {
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+        this.votes = new VoteAccumulator(stripes > 0 ? stripes : 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * method used for voting on an answer. The vote replaces any earlier vote of the user on the answer
+     * and is applied to the score with the next batch.
+     *
+     * @param answerId id of the answer
+     * @param userId   id of the voting user
+     * @param up       true for an upvote, false for a downvote
+     * @throws ServiceUnavailableException if max-pending votes are held, as when the batches keep failing
+     */
+    public void vote(final Integer answerId, final Integer userId, final boolean up) throws ServiceUnavailableException {
+        if (votes.size() >= maxPending) {
+            rejected.increment();
+            throw new ServiceUnavailableException("GEN-002", "Too many votes waiting to be saved, please try again later");
+        }
+        received.increment();
+        if (votes.put(VoteAccumulator.key(answerId, userId), up)) {
+            coalesced.increment();
+        }
+    }
+
+    /**
+     * Writes the held votes in batches of batch-size, each batch in one transaction.
+     * Votes are written ordered by answer and user, so that batches never wait on each other's row locks in opposite orders.
+     * A failed batch and the ones after it are put back, unless newer votes replaced them, and retried by the next run.
+     */
+    @Scheduled(fixedDelayString = "${quora.answer.vote.flush-interval-ms:500}")
+    public synchronized void flush() {
+        final long[] entries = votes.drain();
+        if (entries.length == 0) {
+            return;
+        }
+        Arrays.sort(entries);
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        for (int from = 0; from < entries.length; from += batchSize) {
+            final int to = Math.min(from + batchSize, entries.length);
+            final Integer[] answerIds = new Integer[to - from];
+            final Integer[] userIds = new Integer[to - from];
+            final Short[] values = new Short[to - from];
+            for (int i = from; i < to; i++) {
+                answerIds[i - from] = VoteAccumulator.answerIdOf(entries[i]);
+                userIds[i - from] = VoteAccumulator.userIdOf(entries[i]);
+                values[i - from] = (short) (VoteAccumulator.isUp(entries[i]) ? 1 : -1);
+            }
+            final Integer changed;
+            try {
+                changed = transactionTemplate.execute(status -> answerDao.applyVotes(answerIds, userIds, values));
+            } catch (RuntimeException e) {
+                LOGGER.error("Writing {} answer votes failed, retrying with the next flush", entries.length - from, e);
+                for (int i = from; i < entries.length; i++) {
+                    votes.putBack(entries[i]);
+                }
+                return;
+            }
+            rescored.add(changed);
+            batches.increment();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public long getReceivedCount() {
+        return received.sum();
+    }
+
+    /**
+     * @return number of votes replaced in memory by a later vote of the same user on the same answer
+     */
+    public long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    /**
+     * @return number of answer score updates written, one per answer and batch
+     */
+    public long getRescoredCount() {
+        return rescored.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    /**
+     * @return number of votes turned away because max-pending votes were held
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return number of votes held, waiting for the next batch or for a failed batch to be retried
+     */
+    public long getPendingCount() {
+        return votes.size();
+    }
+}
@@ -1,14 +1,22 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.AccessTokenCache;
+import com.upgrad.quora.service.cache.AccessTokenFilter;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthenticationFailedException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Propagation;
 import com.upgrad.quora.service.dao.UserDao;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
 import java.time.ZonedDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class AuthenticationService {
@@ -19,6 +27,30 @@ public class AuthenticationService {
     @Autowired
     private PasswordCryptographyProvider CryptographyProvider;
 
+    @Autowired
+    private JwtSessionVerifier jwtSessionVerifier;
+
+    @Autowired
+    private AccessTokenFilter accessTokenFilter;
+
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private RefreshTokenProvider refreshTokenProvider;
+
+    @Autowired
+    private AccessTokenCache accessTokenCache;
+
+    @Autowired
+    private SessionWriteBehind sessionWriteBehind;
+
+    @Value("${quora.auth.refresh-token.lifetime-days:30}")
+    private long refreshTokenLifetimeDays;
+
     @Transactional(propagation = Propagation.REQUIRED)
     public UserAuthEntity authenticate(final String username, final String password) throws AuthenticationFailedException {
         UserEntity userEntity = userDao.getUserByUserName(username);
@@ -27,22 +59,86 @@ public class AuthenticationService {
         }
         final String encryptedPassword = CryptographyProvider.encrypt(password, userEntity.getSalt());
         if (encryptedPassword.equals(userEntity.getPassword())) {
-            JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(encryptedPassword);
-            UserAuthEntity userAuthEntity = new UserAuthEntity();
-            userAuthEntity.setUser(userEntity);
-            userAuthEntity.setUuid(userEntity.getUuid());
-            final ZonedDateTime now = ZonedDateTime.now();
-            final ZonedDateTime expiresAt = now.plusHours(8);
-            userAuthEntity.setAccessToken(jwtTokenProvider.generateToken(userEntity.getUuid(), now, expiresAt));
-            userAuthEntity.setLoginAt(now);
-            userAuthEntity.setExpiresAt(expiresAt);
-
-            userDao.createAuthToken(userAuthEntity);
-            userDao.updateUser(userEntity);
-
-            return userAuthEntity;
+            return createSession(userEntity, encryptedPassword);
         } else {
             throw new AuthenticationFailedException("ATH-002", "Password failed");
         }
     }
+
+    /**
+     * Non blocking variant of authenticate. The password is hashed on the dedicated hashing pool and the
+     * session is created in its own transaction on the session pool once the hash is available,
+     * so no request thread waits on PBKDF2 and no hashing thread waits on the database.
+     *
+     * @param username username of the user
+     * @param password raw password of the user
+     * @return future of the created session, failed with AuthenticationFailedException on bad credentials
+     * or ServiceUnavailableException when the hashing pool is saturated
+     */
+    public CompletableFuture<UserAuthEntity> authenticateAsync(final String username, final String password) {
+        final UserEntity userEntity = userDao.getUserByUserName(username);
+        if (userEntity == null) {
+            final CompletableFuture<UserAuthEntity> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new AuthenticationFailedException("ATH-001", "This username does not exist"));
+            return failed;
+        }
+        return passwordHashingExecutor.encryptThen(password, userEntity.getSalt(), encryptedPassword -> {
+            if (!encryptedPassword.equals(userEntity.getPassword())) {
+                throw new CompletionException(new AuthenticationFailedException("ATH-002", "Password failed"));
+            }
+            return new TransactionTemplate(transactionManager).execute(status -> createSession(userEntity, encryptedPassword));
+        });
+    }
+
+    /**
+     * Exchanges a refresh token for a new session. The presented token is single use: its session is signed out,
+     * which revokes the old access token as well, and the new session carries a new refresh token.
+     * Only the new access token is signed, no password is hashed.
+     *
+     * @param refreshToken refresh token issued by sign in or a previous refresh
+     * @return the new session, carrying the plain refresh token
+     * @throws AuthenticationFailedException if the token is unknown, expired or already used
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
+    public UserAuthEntity refresh(final String refreshToken) throws AuthenticationFailedException {
+        final UserAuthEntity previousSession = userDao.getAuthWithUserByRefreshToken(refreshTokenProvider.hash(refreshToken));
+        if (previousSession == null) {
+            throw new AuthenticationFailedException("ATH-004", "Refresh token is invalid");
+        }
+        final ZonedDateTime now = ZonedDateTime.now();
+        //the conditional sign out lets exactly one of several concurrent refreshes with the same token win
+        if (previousSession.getLogoutAt() != null || sessionWriteBehind.isSignedOut(previousSession.getAccessToken())
+                || !previousSession.getRefreshExpiresAt().isAfter(now)
+                || !userDao.signOutActiveSession(previousSession.getId(), now)) {
+            throw new AuthenticationFailedException("ATH-005", "Refresh token has expired or has already been used");
+        }
+        accessTokenCache.invalidate(previousSession.getAccessToken());
+        jwtSessionVerifier.revoke(previousSession.getAccessToken());
+
+        final UserEntity userEntity = previousSession.getUser();
+        return createSession(userEntity, userEntity.getPassword());
+    }
+
+    private UserAuthEntity createSession(final UserEntity userEntity, final String encryptedPassword) {
+        //in stateless mode tokens are signed with the server key so that they can be verified without the database
+        JwtTokenProvider jwtTokenProvider = jwtSessionVerifier.isEnabled()
+                ? jwtSessionVerifier.getTokenProvider() : new JwtTokenProvider(encryptedPassword);
+        UserAuthEntity userAuthEntity = new UserAuthEntity();
+        userAuthEntity.setUser(userEntity);
+        userAuthEntity.setUuid(userEntity.getUuid());
+        final ZonedDateTime now = ZonedDateTime.now();
+        final ZonedDateTime expiresAt = now.plusHours(jwtSessionVerifier.getTokenLifetimeHours());
+        userAuthEntity.setAccessToken(jwtTokenProvider.generateToken(userEntity, now, expiresAt));
+        userAuthEntity.setLoginAt(now);
+        userAuthEntity.setExpiresAt(expiresAt);
+        final String refreshToken = refreshTokenProvider.generateToken();
+        userAuthEntity.setIssuedRefreshToken(refreshToken);
+        userAuthEntity.setRefreshToken(refreshTokenProvider.hash(refreshToken));
+        userAuthEntity.setRefreshExpiresAt(now.plusDays(refreshTokenLifetimeDays));
+
+        userDao.createAuthToken(userAuthEntity);
+        accessTokenFilter.put(userAuthEntity.getAccessToken());
+
+        return userAuthEntity;
+    }
 }
@@ -0,0 +1,43 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.dao.QuestionDao;
+import com.upgrad.quora.service.entity.Answer;
+import com.upgrad.quora.service.entity.Question;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.function.Consumer;
+
+/**
+ * Service class for exporting the complete question and answer corpus.
+ */
+@Service
+public class ExportService {
+
+    @Autowired
+    QuestionDao questionDao;
+
+    @Autowired
+    AnswerDao answerDao;
+
+    @Value("${quora.export.fetch-size:1000}")
+    private int fetchSize;
+
+    /**
+     * method used for streaming all questions followed by all answers, each ordered by id.
+     * Rows are read through forward only cursors in a single read only transaction
+     * and are detached in batches, hence memory use stays constant whatever the size of the corpus.
+     *
+     * @param questionConsumer called with every question
+     * @param answerConsumer   called with every answer
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public void exportQuestionsAndAnswers(final Consumer<Question> questionConsumer, final Consumer<Answer> answerConsumer) {
+        questionDao.scrollAllQuestions(fetchSize, questionConsumer);
+        answerDao.scrollAllAnswers(fetchSize, answerConsumer);
+    }
+}
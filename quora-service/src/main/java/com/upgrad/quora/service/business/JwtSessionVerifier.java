@@ -0,0 +1,189 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.Claim;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Verifies access tokens signed with the server key without touching the USER_AUTH table.
+ * Enabled by setting quora.auth.jwt.mode to stateless. Signature, issuer, audience and expiry are checked in memory,
+ * and the database is only consulted periodically for the key ids of signed out tokens and the uuids of deleted users
+ * whose tokens have not yet expired. A revocation applies at once on the instance making it and on every other
+ * instance with its next refresh.
+ */
+@Component
+public class JwtSessionVerifier {
+
+    public static final String STATELESS_MODE = "stateless";
+
+    @Autowired
+    private UserDao userDao;
+
+    private final boolean enabled;
+
+    private final long tokenLifetimeHours;
+
+    private final JwtTokenProvider tokenProvider;
+
+    //key id of a revoked token mapped to the epoch millis at which the token expires anyway
+    private final Map<String, Long> revokedKeyIds = new ConcurrentHashMap<>();
+
+    //uuid of a deleted user mapped to the epoch millis after which none of the tokens can be valid
+    private final Map<String, Long> revokedUsers = new ConcurrentHashMap<>();
+
+    private volatile ZonedDateTime lastRefreshAt;
+
+    @Autowired
+    public JwtSessionVerifier(@Value("${quora.auth.jwt.mode:database}") final String mode,
+                              @Value("${quora.auth.jwt.secret:}") final String secret,
+                              @Value("${quora.auth.jwt.lifetime-hours:8}") final long lifetimeHours) {
+        this.enabled = STATELESS_MODE.equalsIgnoreCase(mode);
+        this.tokenLifetimeHours = lifetimeHours;
+        if (enabled && secret.isEmpty()) {
+            throw new IllegalStateException("quora.auth.jwt.secret must be set when quora.auth.jwt.mode is stateless");
+        }
+        this.tokenProvider = enabled ? new JwtTokenProvider(secret) : null;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public long getTokenLifetimeHours() {
+        return tokenLifetimeHours;
+    }
+
+    /**
+     * @return provider signing tokens with the server key, null when stateless mode is disabled
+     */
+    public JwtTokenProvider getTokenProvider() {
+        return tokenProvider;
+    }
+
+    /**
+     * method used for resolving a session from the claims of a server signed token.
+     * The user of the session only carries the id, uuid and role of the user.
+     *
+     * @param accessToken access token of the user
+     * @return session built from the token, or null if stateless mode is disabled or the token is not a valid server signed token
+     * @throws AuthorizationFailedException if the token has been revoked by sign out or user removal
+     */
+    public UserAuthEntity verify(final String accessToken) throws AuthorizationFailedException {
+        if (!enabled) {
+            return null;
+        }
+        final DecodedJWT jwt;
+        try {
+            jwt = tokenProvider.verifyToken(accessToken);
+        } catch (JWTVerificationException e) {
+            return null;
+        }
+        final Claim userId = jwt.getClaim(JwtTokenProvider.USER_ID_CLAIM);
+        final Claim role = jwt.getClaim(JwtTokenProvider.ROLE_CLAIM);
+        if (userId.isNull() || role.isNull()) {
+            return null;
+        }
+        final String userUuid = jwt.getAudience().get(0);
+        if (revokedKeyIds.containsKey(jwt.getKeyId()) || revokedUsers.containsKey(userUuid)) {
+            throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to delete a question");
+        }
+
+        final UserEntity user = new UserEntity();
+        user.setId(userId.asInt());
+        user.setUuid(userUuid);
+        user.setRole(role.asString());
+
+        final UserAuthEntity userAuthEntity = new UserAuthEntity();
+        userAuthEntity.setUser(user);
+        userAuthEntity.setUuid(userUuid);
+        userAuthEntity.setAccessToken(accessToken);
+        userAuthEntity.setLoginAt(ZonedDateTime.ofInstant(jwt.getIssuedAt().toInstant(), ZoneId.systemDefault()));
+        userAuthEntity.setExpiresAt(ZonedDateTime.ofInstant(jwt.getExpiresAt().toInstant(), ZoneId.systemDefault()));
+        return userAuthEntity;
+    }
+
+    /**
+     * method used for revoking a token on sign out.
+     *
+     * @param accessToken access token of the user
+     */
+    public void revoke(final String accessToken) {
+        if (enabled) {
+            addRevokedToken(accessToken);
+        }
+    }
+
+    /**
+     * method used for revoking every token issued to a deleted user.
+     * The revocation is stored in REVOKED_USER, so it must be called within the transaction deleting the user.
+     * It is stored in either mode, since AccessTokenCache reads it as well to drop the cached sessions of the user
+     * on every instance.
+     *
+     * @param userUuid uuid of the deleted user
+     */
+    public void revokeUser(final String userUuid) {
+        final ZonedDateTime now = ZonedDateTime.now();
+        final ZonedDateTime expiresAt = now.plusHours(tokenLifetimeHours);
+        userDao.revokeUser(userUuid, now, expiresAt);
+        if (enabled) {
+            revokedUsers.put(userUuid, expiresAt.toInstant().toEpochMilli());
+        }
+    }
+
+    /**
+     * Pulls the tokens signed out and the users deleted since the previous run from the database
+     * and forgets revocations of expired tokens.
+     */
+    @Scheduled(fixedDelayString = "${quora.auth.jwt.revocation-refresh-ms:30000}")
+    public void refreshRevocations() {
+        if (!enabled) {
+            return;
+        }
+        final ZonedDateTime now = ZonedDateTime.now();
+        //overlap the previous window so that sign outs committed while it ran are not missed
+        final ZonedDateTime since = lastRefreshAt == null ? now.minusHours(tokenLifetimeHours) : lastRefreshAt.minusMinutes(1);
+        for (String accessToken : userDao.getAccessTokensSignedOutSince(since, now)) {
+            addRevokedToken(accessToken);
+        }
+        revokedUsers.putAll(userDao.getUsersRevokedSince(since, now));
+        lastRefreshAt = now;
+
+        final long nowMillis = System.currentTimeMillis();
+        revokedKeyIds.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+        revokedUsers.values().removeIf(expiresAt -> expiresAt <= nowMillis);
+    }
+
+    public int getRevokedTokenCount() {
+        return revokedKeyIds.size();
+    }
+
+    public int getRevokedUserCount() {
+        return revokedUsers.size();
+    }
+
+    private void addRevokedToken(final String accessToken) {
+        try {
+            final DecodedJWT jwt = JWT.decode(accessToken);
+            if (jwt.getKeyId() != null && jwt.getExpiresAt() != null) {
+                revokedKeyIds.put(jwt.getKeyId(), jwt.getExpiresAt().getTime());
+            }
+        } catch (JWTDecodeException e) {
+            //not a JWT, hence it can never pass stateless verification
+        }
+    }
+}
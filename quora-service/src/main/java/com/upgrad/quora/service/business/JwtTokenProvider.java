@@ -1,13 +1,19 @@
 package com.upgrad.quora.service.business;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTCreator;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.InvalidClaimException;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.upgrad.quora.service.common.GenericErrorCode;
 import com.upgrad.quora.service.common.UnexpectedException;
+import com.upgrad.quora.service.entity.UserEntity;
 
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoField;
 import java.util.Date;
+import java.util.List;
 import java.util.UUID;
 
 /**
@@ -16,8 +22,14 @@ import java.util.UUID;
 public class JwtTokenProvider {
     private static final String TOKEN_ISSUER = "https://quora.io";
 
+    static final String USER_ID_CLAIM = "uid";
+    static final String ROLE_CLAIM = "role";
+
     private final Algorithm algorithm;
 
+    //built on first use, providers created per sign in only ever sign
+    private volatile JWTVerifier verifier;
+
     /**
      * A constructor for JwtTokenProvider class which receives user password as an argument to be used in the signature part of JWT access token.
      */
@@ -41,14 +53,54 @@ public class JwtTokenProvider {
      * @return - generated JWT token
      */
     public String generateToken(final String userUuid, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
+        return newToken(userUuid, issuedDateTime, expiresDateTime).sign(algorithm);
+    }
+
+    /**
+     * This method additionally stores the id and role of the user in the payload,
+     * so that a token signed with the server key can be verified without a database lookup.
+     *
+     * @param user            - user the token is issued to
+     * @param issuedDateTime  - current time
+     * @param expiresDateTime - expiry time of the JWT token
+     * @return - generated JWT token
+     */
+    public String generateToken(final UserEntity user, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
+        return newToken(user.getUuid(), issuedDateTime, expiresDateTime)
+                .withClaim(USER_ID_CLAIM, user.getId())
+                .withClaim(ROLE_CLAIM, user.getRole())
+                .sign(algorithm);
+    }
+
+    /**
+     * This method checks signature, issuer, expiry and audience of the token in memory.
+     *
+     * @param token - JWT token to be verified
+     * @return - decoded JWT token
+     * @throws JWTVerificationException if the token is not valid
+     */
+    public DecodedJWT verifyToken(final String token) throws JWTVerificationException {
+        JWTVerifier jwtVerifier = verifier;
+        if (jwtVerifier == null) {
+            jwtVerifier = JWT.require(algorithm).withIssuer(TOKEN_ISSUER).build();
+            verifier = jwtVerifier;
+        }
+        final DecodedJWT decodedJWT = jwtVerifier.verify(token);
+        final List<String> audience = decodedJWT.getAudience();
+        if (audience == null || audience.size() != 1 || audience.get(0).isEmpty()) {
+            throw new InvalidClaimException("The Claim 'aud' must hold exactly one user uuid.");
+        }
+        return decodedJWT;
+    }
 
-        final Date issuedAt = new Date(issuedDateTime.getLong(ChronoField.INSTANT_SECONDS));
-        final Date expiresAt = new Date(expiresDateTime.getLong(ChronoField.INSTANT_SECONDS));
+    private JWTCreator.Builder newToken(final String userUuid, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
+        final Date issuedAt = Date.from(issuedDateTime.toInstant());
+        final Date expiresAt = Date.from(expiresDateTime.toInstant());
 
         return JWT.create().withIssuer(TOKEN_ISSUER) //
                 .withKeyId(UUID.randomUUID().toString())
                 .withAudience(userUuid) //
-                .withIssuedAt(issuedAt).withExpiresAt(expiresAt).sign(algorithm);
+                .withIssuedAt(issuedAt).withExpiresAt(expiresAt);
     }
 
 }
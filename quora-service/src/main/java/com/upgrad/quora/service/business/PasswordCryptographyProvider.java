@@ -1,26 +1,46 @@
 package com.upgrad.quora.service.business;
 
 
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
-import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
 import java.util.Base64;
-import java.util.Random;
+import javax.crypto.Mac;
 import javax.crypto.SecretKey;
-import javax.crypto.SecretKeyFactory;
-import javax.crypto.spec.PBEKeySpec;
 
 import org.springframework.stereotype.Component;
 
 
+/**
+ * Salted PBKDF2WithHmacSHA512 password hashing.
+ * The derivation is computed directly on a per-thread HmacSHA512 instance, which produces the same output as
+ * SecretKeyFactory without looking up a provider and allocating a new Mac on every hash.
+ */
 @Component
 public class PasswordCryptographyProvider {
 
-    private static String SECRET_KEY_ALGORITHM = "PBKDF2WithHmacSHA512";
+    private static String HMAC_ALGORITHM = "HmacSHA512";
     private static int HASHING_ITERATIONS = 1000;
     private static int HASHING_KEY_LENGTH = 64;
     private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
 
+    private static final Base64.Encoder BASE64_ENCODER = Base64.getEncoder();
+    private static final Base64.Decoder BASE64_DECODER = Base64.getDecoder();
+
+    private static final ThreadLocal<Mac> HMAC = ThreadLocal.withInitial(() -> {
+        try {
+            return Mac.getInstance(HMAC_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
     /**
      * This method generates Salt and hashed Password
      *
@@ -51,31 +71,60 @@ public class PasswordCryptographyProvider {
      * @return 32 bytes long array
      */
     private static byte[] generateSaltBytes() {
-        final Random random = new SecureRandom();
         byte[] saltBytes = new byte[32];
-        random.nextBytes(saltBytes);
+        RANDOM.get().nextBytes(saltBytes);
         return saltBytes;
     }
 
     /**
-     * This method generates hashed Password
+     * This method generates hashed Password as specified for PBKDF2 in RFC 8018.
      *
      * @param password char array.
      * @param salt     byte array.
      * @return byte array of hashed password.
      */
     private static byte[] hashPassword(final char[] password, final byte[] salt) {
+        final Mac mac = HMAC.get();
+        final byte[] passwordBytes = getUtf8Bytes(password);
         try {
-            SecretKeyFactory skf = SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
-            PBEKeySpec spec = new PBEKeySpec(password, salt, HASHING_ITERATIONS, HASHING_KEY_LENGTH);
-            SecretKey key = skf.generateSecret(spec);
-            byte[] res = key.getEncoded();
-            return res;
-        } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+            mac.init(new PasswordKey(passwordBytes));
+            final int keyLength = HASHING_KEY_LENGTH / 8;
+            final int macLength = mac.getMacLength();
+            final byte[] derivedKey = new byte[keyLength];
+            final byte[] u = new byte[macLength];
+            final byte[] t = new byte[macLength];
+            for (int block = 1, offset = 0; offset < keyLength; block++, offset += macLength) {
+                mac.update(salt);
+                mac.update((byte) (block >>> 24));
+                mac.update((byte) (block >>> 16));
+                mac.update((byte) (block >>> 8));
+                mac.update((byte) block);
+                mac.doFinal(u, 0);
+                System.arraycopy(u, 0, t, 0, macLength);
+                for (int i = 1; i < HASHING_ITERATIONS; i++) {
+                    mac.update(u);
+                    mac.doFinal(u, 0);
+                    for (int j = 0; j < macLength; j++) {
+                        t[j] ^= u[j];
+                    }
+                }
+                System.arraycopy(t, 0, derivedKey, offset, Math.min(macLength, keyLength - offset));
+            }
+            return derivedKey;
+        } catch (GeneralSecurityException e) {
             throw new RuntimeException(e);
+        } finally {
+            Arrays.fill(passwordBytes, (byte) 0);
         }
     }
 
+    private static byte[] getUtf8Bytes(final char[] password) {
+        final ByteBuffer encoded = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+        final byte[] bytes = new byte[encoded.remaining()];
+        encoded.get(bytes);
+        return bytes;
+    }
+
     private static String bytesToHex(byte[] bytes) {
         char[] hexChars = new char[bytes.length * 2];
         for (int j = 0; j < bytes.length; j++) {
@@ -87,12 +136,37 @@ public class PasswordCryptographyProvider {
     }
 
     private static String getBase64EncodedBytesAsString(byte bytes[]) {
-        return Base64.getEncoder().encodeToString(bytes);
+        return BASE64_ENCODER.encodeToString(bytes);
     }
 
     private static byte[] getBase64DecodedStringAsBytes(String decode) {
-        return Base64.getDecoder().decode(decode);
+        return BASE64_DECODER.decode(decode);
     }
-}
 
+    /**
+     * HMAC key over the raw password bytes. Unlike SecretKeySpec it accepts an empty password,
+     * matching the behaviour of the PBKDF2 SecretKeyFactory.
+     */
+    private static final class PasswordKey implements SecretKey {
+        private final byte[] key;
+
+        private PasswordKey(final byte[] key) {
+            this.key = key;
+        }
+
+        @Override
+        public String getAlgorithm() {
+            return HMAC_ALGORITHM;
+        }
+
+        @Override
+        public String getFormat() {
+            return "RAW";
+        }
 
+        @Override
+        public byte[] getEncoded() {
+            return key.clone();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.LatencyStats;
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Runs PBKDF2 password hashing on a dedicated pool sized to the CPU count, so that a burst of sign ins
+ * cannot starve the request threads serving other endpoints. The queue is bounded and a full queue
+ * fails the request immediately instead of letting it wait.
+ * Work depending on the hash, such as writing the new session, runs on a second pool sized to the database
+ * connection pool, so that hashing threads never wait on the database.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    private final ThreadPoolExecutor sessionExecutor;
+
+    private final LatencyStats hashLatency = new LatencyStats();
+
+    private final LongAdder rejected = new LongAdder();
+
+    @Autowired
+    public PasswordHashingExecutor(@Value("${quora.auth.hashing.threads:0}") final int threads,
+                                   @Value("${quora.auth.hashing.queue-capacity:64}") final int queueCapacity,
+                                   @Value("${spring.datasource.hikari.maximum-pool-size:10}") final int sessionThreads) {
+        final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.executor = pool("password-hash-", poolSize, queueCapacity);
+        //a hash waiting for the session pool has already been paid for, so its queue holds every hash which can be in flight
+        this.sessionExecutor = pool("sign-in-session-", sessionThreads, poolSize + queueCapacity);
+    }
+
+    private static ThreadPoolExecutor pool(final String threadNamePrefix, final int poolSize, final int queueCapacity) {
+        final CustomizableThreadFactory threadFactory = new CustomizableThreadFactory(threadNamePrefix);
+        threadFactory.setDaemon(true);
+        return new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    /**
+     * method used for hashing a password with the stored salt of the user on the hashing pool.
+     *
+     * @param password raw password
+     * @param salt     encoded salt of the user
+     * @return future of the hashed password, failed with ServiceUnavailableException if the queue is full
+     */
+    public CompletableFuture<String> encrypt(final String password, final String salt) {
+        final CompletableFuture<String> result = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                final long start = System.nanoTime();
+                try {
+                    result.complete(PasswordCryptographyProvider.encrypt(password, salt));
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                } finally {
+                    hashLatency.record(System.nanoTime() - start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            result.completeExceptionally(new ServiceUnavailableException("GEN-002", "Too many sign in requests, please try again later"));
+        }
+        return result;
+    }
+
+    /**
+     * method used for hashing a password on the hashing pool and handing the hash to work which needs the database.
+     * The continuation runs on the session pool and may fail the future by throwing a CompletionException.
+     *
+     * @param password     raw password
+     * @param salt         encoded salt of the user
+     * @param continuation work to run with the hashed password
+     * @return future of the result of the continuation, failed with ServiceUnavailableException if a queue is full
+     */
+    public <T> CompletableFuture<T> encryptThen(final String password, final String salt, final Function<String, T> continuation) {
+        final CompletableFuture<T> result = new CompletableFuture<>();
+        encrypt(password, salt).whenComplete((encryptedPassword, failure) -> {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+                return;
+            }
+            try {
+                sessionExecutor.execute(() -> {
+                    try {
+                        result.complete(continuation.apply(encryptedPassword));
+                    } catch (RuntimeException e) {
+                        result.completeExceptionally(e);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                result.completeExceptionally(new ServiceUnavailableException("GEN-002", "Too many sign in requests, please try again later"));
+            }
+        });
+        return result;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        sessionExecutor.shutdown();
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getSessionQueueDepth() {
+        return sessionExecutor.getQueue().size();
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public LatencyStats getHashLatency() {
+        return hashLatency;
+    }
+}
@@ -1,21 +1,34 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.common.KeysetCursor;
+import com.upgrad.quora.service.common.KeysetPage;
+import com.upgrad.quora.service.common.LatencyStats;
+import com.upgrad.quora.service.common.OffsetPage;
+import com.upgrad.quora.service.common.Pagination;
+import com.upgrad.quora.service.dao.AnswerDao;
 import com.upgrad.quora.service.dao.QuestionDao;
 import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.dto.QuestionCreateResult;
+import com.upgrad.quora.service.dto.QuestionSearchHit;
+import com.upgrad.quora.service.dto.QuestionSummary;
 import com.upgrad.quora.service.entity.Question;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidBulkRequestException;
+import com.upgrad.quora.service.exception.InvalidPageRequestException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
-import com.upgrad.quora.service.exception.QuestionNotFoundException;
+import com.upgrad.quora.service.exception.InvalidSearchException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
-import com.upgrad.quora.service.type.ActionType;
 import com.upgrad.quora.service.type.RoleType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -30,6 +43,22 @@ public class QuestionService {
     @Autowired
     UserDao userDao;
 
+    @Autowired
+    AnswerDao answerDao;
+
+    @Autowired
+    UuidGenerator uuidGenerator;
+
+    private static final int MAX_CONTENT_LENGTH = 500;
+
+    @Value("${quora.question.bulk.max-size:5000}")
+    private int maxBulkSize;
+
+    @Value("${quora.delete.batch-size:1000}")
+    private int deleteBatchSize;
+
+    private final LatencyStats searchLatency = new LatencyStats();
+
     /**
      * method used for creating question instance in database.
      *
@@ -42,90 +71,160 @@ public class QuestionService {
     }
 
     /**
-     * method used for getting questions for a authorized user
+     * method used for creating many questions of a user in one transaction.
+     * Every content is validated on its own, the valid ones are created together and the others are reported as rejected.
      *
-     * @param uuId uuid of user whose questions are to be retrieved
-     * @return List of questions
+     * @param user     author of the questions
+     * @param contents contents of the questions
+     * @return result of every question, in the order of the contents
+     * @throws InvalidBulkRequestException if there are no contents or more than allowed in one call
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public List<Question> getQuestionsForUser(final String uuId) throws QuestionNotFoundException, UserNotFoundException {
+    public List<QuestionCreateResult> createQuestions(final UserEntity user, final List<String> contents) throws InvalidBulkRequestException {
+        if (contents == null || contents.isEmpty()) {
+            throw new InvalidBulkRequestException("BULK-001", "At least one question must be sent");
+        }
+        if (contents.size() > maxBulkSize) {
+            throw new InvalidBulkRequestException("BULK-002", "At most " + maxBulkSize + " questions can be created in one call");
+        }
+        final ZonedDateTime now = ZonedDateTime.now();
+        final List<QuestionCreateResult> results = new ArrayList<>(contents.size());
+        final List<Question> questions = new ArrayList<>(contents.size());
+        for (int index = 0; index < contents.size(); index++) {
+            final String content = contents.get(index);
+            if (content == null || content.trim().isEmpty()) {
+                results.add(QuestionCreateResult.rejected(index, "QUES-002", "Question content must not be empty"));
+            } else if (content.length() > MAX_CONTENT_LENGTH) {
+                results.add(QuestionCreateResult.rejected(index, "QUES-003", "Question content must not exceed " + MAX_CONTENT_LENGTH + " characters"));
+            } else {
+                Question question = new Question();
+                question.setUser(user);
+                question.setUuid(uuidGenerator.generate().toString());
+                question.setContent(content);
+                question.setDate(now);
+                questions.add(question);
+                results.add(QuestionCreateResult.created(index, question));
+            }
+        }
+        questionDao.createQuestions(questions);
+        return results;
+    }
+
+    /**
+     * method used for getting a page of the questions of a user, newest first.
+     *
+     * @param uuId   uuid of user whose questions are to be retrieved
+     * @param cursor cursor returned with the previous page, null for the first page
+     * @param limit  page size, null for the default
+     * @return page of question summaries
+     * @throws UserNotFoundException       if the user does not exist
+     * @throws InvalidPageRequestException if the cursor or page size is invalid
+     */
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public KeysetPage<QuestionSummary> getQuestionsForUser(final String uuId, final String cursor, final Integer limit) throws UserNotFoundException, InvalidPageRequestException {
+        final int pageSize = Pagination.pageSize(limit);
+        final KeysetCursor after = Pagination.cursor(cursor);
         UserEntity user = userDao.getUser(uuId);
         if (user == null) {
             throw new UserNotFoundException("USR-001", "User with entered uuid whose question details are to be seen does not exist");
         }
-        List<Question> questionList = questionDao.getAllQuestionsForUser(user.getUuid());
-        if (questionList == null) {
-            throw new QuestionNotFoundException("QUER-001", "No questions found for user");
-        } else {
-            return questionList;
-        }
+        List<QuestionSummary> questionList = questionDao.getQuestionsPageForUser(user.getId(), after, pageSize + 1);
+        return Pagination.page(questionList, pageSize, QuestionService::cursorOf);
     }
 
     /**
-     * methos used for getting all questions for any user.
+     * method used for getting a page of all questions, newest first.
      *
-     * @return List of questions
-     * @throws QuestionNotFoundException exceptionto indicate no questions are available in database
+     * @param cursor cursor returned with the previous page, null for the first page
+     * @param limit  page size, null for the default
+     * @return page of question summaries
+     * @throws InvalidPageRequestException if the cursor or page size is invalid
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public List<Question> getAllQuestions() throws QuestionNotFoundException {
-        List<Question> questionList = questionDao.getAllQuestions();
-        if (questionList == null) {
-            throw new QuestionNotFoundException("QUER-002", "No questions found for any user");
-        } else {
-            return questionList;
-        }
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public KeysetPage<QuestionSummary> getAllQuestions(final String cursor, final Integer limit) throws InvalidPageRequestException {
+        final int pageSize = Pagination.pageSize(limit);
+        List<QuestionSummary> questionList = questionDao.getQuestionsPage(Pagination.cursor(cursor), pageSize + 1);
+        return Pagination.page(questionList, pageSize, QuestionService::cursorOf);
     }
 
     /**
-     * method used to check if the question owner is asking for question.
+     * method used for full-text searching questions, best matches first.
      *
-     * @param questionUuId   the question id required
-     * @param authorizedUser authorized user instance
-     * @param actionType     type of action done edit or delete
-     * @return Question Object
-     * @throws AuthorizationFailedException thrown if the user is not the owner of the question
-     * @throws InvalidQuestionException     thrown if the question does not exist
+     * @param query  words to search for
+     * @param offset number of matches to skip, null for none
+     * @param limit  page size, null for the default
+     * @return page of matching questions
+     * @throws InvalidSearchException      if the query is empty
+     * @throws InvalidPageRequestException if the offset or page size is invalid
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public Question isUserQuestionOwner(String questionUuId, UserAuthEntity authorizedUser, ActionType actionType) throws AuthorizationFailedException, InvalidQuestionException {
-        Question question = questionDao.getQuestion(questionUuId);
-        if (question == null) {
-            throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
-        } else if (!question.getUser().getUuid().equals(authorizedUser.getUser().getUuid())) {
-            if (actionType.equals(ActionType.DELETE_QUESTION)) {
-                throw new AuthorizationFailedException("ATHR-003", "Only the question owner or admin can delete the question");
-            } else {//that means edit mode. Hence show different message as mentioned in the assignment
-                throw new AuthorizationFailedException("ATHR-003", "Only the question owner can edit the question");
-            }
-        } else if (!authorizedUser.getUser().getRole().equals(RoleType.admin)
-                && !question.getUser().getUuid().equals(authorizedUser.getUser().getUuid())
-                && actionType.equals(ActionType.DELETE_QUESTION)) {
-            throw new AuthorizationFailedException("ATHR-003", "Only the question owner or admin can delete the question");
-        } else {
-            return question;
+    @Transactional(propagation = Propagation.REQUIRED, readOnly = true)
+    public OffsetPage<QuestionSearchHit> searchQuestions(final String query, final Integer offset, final Integer limit) throws InvalidSearchException, InvalidPageRequestException {
+        if (query == null || query.trim().isEmpty()) {
+            throw new InvalidSearchException("SRCH-001", "Search query must not be empty");
+        }
+        final int pageSize = Pagination.pageSize(limit);
+        final int firstResult = Pagination.offset(offset);
+        final long start = System.nanoTime();
+        try {
+            List<QuestionSearchHit> hits = questionDao.searchQuestions(query, firstResult, pageSize + 1);
+            return Pagination.page(hits, firstResult, pageSize);
+        } finally {
+            searchLatency.record(System.nanoTime() - start);
         }
     }
 
+    public LatencyStats getSearchLatency() {
+        return searchLatency;
+    }
+
+    private static KeysetCursor cursorOf(final QuestionSummary question) {
+        return new KeysetCursor(question.getDate(), question.getId());
+    }
 
     /**
-     * method used to edit question.
+     * method used to edit question, only the owner of the question may edit it.
+     * The ownership check and the edit are a single statement; only when nothing was edited
+     * the question is looked up to tell a missing question from one owned by another user.
      *
-     * @param question question object to be edited in database
+     * @param questionUuId   uuid of the question
+     * @param content        new content of the question
+     * @param authorizedUser authorized user instance
+     * @throws AuthorizationFailedException thrown if the user is not the owner of the question
+     * @throws InvalidQuestionException     thrown if the question does not exist
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public void editQuestion(Question question) {
-        questionDao.editQuestion(question);
+    public void editQuestion(String questionUuId, String content, UserAuthEntity authorizedUser) throws AuthorizationFailedException, InvalidQuestionException {
+        if (!questionDao.editQuestion(questionUuId, authorizedUser.getUser().getId(), content)) {
+            checkQuestionExists(questionUuId);
+            throw new AuthorizationFailedException("ATHR-003", "Only the question owner can edit the question");
+        }
     }
 
     /**
-     * method used for deleting the question
+     * method used for deleting the question, only the owner of the question or an admin may delete it.
+     * The answers are deleted first in bounded batches, then the question; both statements carry the ownership check,
+     * and only when nothing was deleted the question is looked up to tell a missing question from one owned by another user.
      *
-     * @param question question object to be removed from Database.
+     * @param questionUuId   uuid of the question
+     * @param authorizedUser authorized user instance
+     * @throws AuthorizationFailedException thrown if the user is neither the owner of the question nor an admin
+     * @throws InvalidQuestionException     thrown if the question does not exist
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public void deleteQuestion(Question question) {
-        questionDao.deleteQuestion(question);
+    public void deleteQuestion(String questionUuId, UserAuthEntity authorizedUser) throws AuthorizationFailedException, InvalidQuestionException {
+        final UserEntity user = authorizedUser.getUser();
+        final Integer ownerId = RoleType.admin.name().equals(user.getRole()) ? null : user.getId();
+        answerDao.deleteAnswersOfQuestion(questionUuId, ownerId, deleteBatchSize);
+        if (!questionDao.deleteQuestion(questionUuId, ownerId)) {
+            checkQuestionExists(questionUuId);
+            throw new AuthorizationFailedException("ATHR-003", "Only the question owner or admin can delete the question");
+        }
+    }
+
+    private void checkQuestionExists(final String questionUuId) throws InvalidQuestionException {
+        if (!questionDao.questionExists(questionUuId)) {
+            throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
+        }
     }
 
     /**
@@ -0,0 +1,19 @@
+package com.upgrad.quora.service.business;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Generates fully random version 4 uuids, which carry no creation time.
+ */
+@Component
+@ConditionalOnProperty(name = "quora.uuid.generator", havingValue = "random")
+public class RandomUuidGenerator implements UuidGenerator {
+
+    @Override
+    public UUID generate() {
+        return UUID.randomUUID();
+    }
+}
@@ -0,0 +1,57 @@
+package com.upgrad.quora.service.business;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Issues opaque refresh tokens. Only the SHA-256 hash of a token is stored in USER_AUTH,
+ * so a leaked table cannot be used to refresh sessions.
+ */
+@Component
+public class RefreshTokenProvider {
+
+    private static final int TOKEN_BYTES = 32;
+
+    private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
+
+    private static final Base64.Encoder TOKEN_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final ThreadLocal<SecureRandom> RANDOM = ThreadLocal.withInitial(SecureRandom::new);
+
+    private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    });
+
+    /**
+     * @return new random refresh token
+     */
+    public String generateToken() {
+        final byte[] token = new byte[TOKEN_BYTES];
+        RANDOM.get().nextBytes(token);
+        return TOKEN_ENCODER.encodeToString(token);
+    }
+
+    /**
+     * @param refreshToken refresh token presented by the client
+     * @return hex encoded SHA-256 hash under which the token is stored
+     */
+    public String hash(final String refreshToken) {
+        final byte[] digest = SHA_256.get().digest(refreshToken.getBytes(StandardCharsets.UTF_8));
+        final char[] hexChars = new char[digest.length * 2];
+        for (int j = 0; j < digest.length; j++) {
+            int v = digest[j] & 0xFF;
+            hexChars[j * 2] = hexArray[v >>> 4];
+            hexChars[j * 2 + 1] = hexArray[v & 0x0F];
+        }
+        return new String(hexChars);
+    }
+}
@@ -0,0 +1,172 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.cache.AccessTokenCache;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes sign outs to USER_AUTH, either at once or behind, as selected by quora.auth.write-behind.mode.
+ * In write-through mode, the default, a sign out is written by the transaction signing out, so an acknowledged
+ * sign out survives a crash of the instance.
+ * In write-behind mode sign outs are collected in memory and written as periodic JDBC batches instead of one update
+ * per sign out. A signed out token is revoked in memory at once and stays revoked until its batch is committed,
+ * plus a grace period which covers lookups that read the row just before the commit. Until then other instances
+ * accept the token, and sign outs still pending when the process dies are lost, bringing their sessions back;
+ * shutdown writes the pending sign outs.
+ */
+@Component
+public class SessionWriteBehind {
+
+    public static final String WRITE_BEHIND_MODE = "write-behind";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SessionWriteBehind.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private AccessTokenCache accessTokenCache;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final boolean enabled;
+
+    private final int batchSize;
+
+    private final long revocationGraceMillis;
+
+    //sign outs which are not yet written, by session id
+    private final Map<Long, PendingSignOut> pending = new ConcurrentHashMap<>();
+
+    //revoked access token mapped to the epoch millis its sign out was written at, 0 while it is pending
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    private final LongAdder written = new LongAdder();
+
+    private final LongAdder batches = new LongAdder();
+
+    @Autowired
+    public SessionWriteBehind(@Value("${quora.auth.write-behind.mode:write-through}") final String mode,
+                              @Value("${quora.auth.write-behind.batch-size:500}") final int batchSize,
+                              @Value("${quora.auth.write-behind.revocation-grace-ms:5000}") final long revocationGraceMillis) {
+        this.enabled = WRITE_BEHIND_MODE.equalsIgnoreCase(mode);
+        this.batchSize = batchSize;
+        this.revocationGraceMillis = revocationGraceMillis;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * method used for signing out a session. In write-through mode the row is updated within the surrounding transaction.
+     * In write-behind mode the token is revoked immediately and the row is updated with the next batch.
+     *
+     * @param userAuthEntity session to be signed out
+     * @param logoutAt       time of the sign out
+     */
+    public void signOut(final UserAuthEntity userAuthEntity, final ZonedDateTime logoutAt) {
+        if (!enabled) {
+            userDao.signOutActiveSession(userAuthEntity.getId(), logoutAt);
+            return;
+        }
+        revokedTokens.put(userAuthEntity.getAccessToken(), 0L);
+        pending.putIfAbsent(userAuthEntity.getId(), new PendingSignOut(userAuthEntity.getAccessToken(), logoutAt));
+    }
+
+    /**
+     * method used for checking whether a token has been signed out but the database may not show it yet.
+     *
+     * @param accessToken access token of the user
+     * @return true if the token is revoked in memory
+     */
+    public boolean isSignedOut(final String accessToken) {
+        return revokedTokens.containsKey(accessToken);
+    }
+
+    /**
+     * Writes the pending sign outs in batches of batch-size, each batch in one transaction.
+     * A failed batch stays pending and is retried by the next run.
+     */
+    @Scheduled(fixedDelayString = "${quora.auth.write-behind.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        final long now = System.currentTimeMillis();
+        revokedTokens.values().removeIf(writtenAt -> writtenAt > 0 && now - writtenAt > revocationGraceMillis);
+        if (pending.isEmpty()) {
+            return;
+        }
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        final List<Map.Entry<Long, PendingSignOut>> entries = new ArrayList<>(pending.entrySet());
+        for (int from = 0; from < entries.size(); from += batchSize) {
+            final List<Map.Entry<Long, PendingSignOut>> batch = entries.subList(from, Math.min(from + batchSize, entries.size()));
+            final Map<Long, ZonedDateTime> logoutTimes = new LinkedHashMap<>();
+            for (Map.Entry<Long, PendingSignOut> entry : batch) {
+                logoutTimes.put(entry.getKey(), entry.getValue().logoutAt);
+            }
+            try {
+                transactionTemplate.execute(status -> {
+                    userDao.signOutSessions(logoutTimes);
+                    return null;
+                });
+            } catch (RuntimeException e) {
+                LOGGER.error("Writing {} sign outs failed, retrying with the next flush", logoutTimes.size(), e);
+                return;
+            }
+            final long writtenAt = System.currentTimeMillis();
+            for (Map.Entry<Long, PendingSignOut> entry : batch) {
+                pending.remove(entry.getKey(), entry.getValue());
+                //a lookup may have cached the row as it was before the commit
+                accessTokenCache.invalidate(entry.getValue().accessToken);
+                revokedTokens.replace(entry.getValue().accessToken, 0L, writtenAt);
+            }
+            written.add(batch.size());
+            batches.increment();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    public long getWrittenCount() {
+        return written.sum();
+    }
+
+    public long getBatchCount() {
+        return batches.sum();
+    }
+
+    private static final class PendingSignOut {
+
+        private final String accessToken;
+        private final ZonedDateTime logoutAt;
+
+        PendingSignOut(final String accessToken, final ZonedDateTime logoutAt) {
+            this.accessToken = accessToken;
+            this.logoutAt = logoutAt;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.exception.RateLimitExceededException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket limiter for sign in attempts, keyed by username and by client address, which is checked before the
+ * password is hashed so that credential stuffing cannot keep the hashing pool busy.
+ * Buckets live in lock striped maps; each stripe keeps its buckets in access order and drops the least recently used
+ * one when it is full, and buckets which have refilled completely are swept periodically since they carry no state.
+ */
+@Component
+public class SignInRateLimiter {
+
+    private final boolean enabled;
+
+    private final BucketTable usernameBuckets;
+
+    private final BucketTable addressBuckets;
+
+    private final LongAdder rejected = new LongAdder();
+
+    private final LongSupplier nanoClock;
+
+    @Autowired
+    public SignInRateLimiter(@Value("${quora.auth.rate-limit.enabled:true}") final boolean enabled,
+                             @Value("${quora.auth.rate-limit.username.capacity:5}") final int usernameCapacity,
+                             @Value("${quora.auth.rate-limit.username.refill-per-minute:5}") final double usernameRefillPerMinute,
+                             @Value("${quora.auth.rate-limit.address.capacity:30}") final int addressCapacity,
+                             @Value("${quora.auth.rate-limit.address.refill-per-minute:30}") final double addressRefillPerMinute,
+                             @Value("${quora.auth.rate-limit.stripes:64}") final int stripes,
+                             @Value("${quora.auth.rate-limit.max-keys-per-stripe:4096}") final int maxKeysPerStripe) {
+        this(enabled, usernameCapacity, usernameRefillPerMinute, addressCapacity, addressRefillPerMinute,
+                stripes, maxKeysPerStripe, System::nanoTime);
+    }
+
+    /**
+     * @param nanoClock source of the monotonic time, in nanoseconds, the buckets refill by
+     */
+    SignInRateLimiter(final boolean enabled, final int usernameCapacity, final double usernameRefillPerMinute,
+                      final int addressCapacity, final double addressRefillPerMinute,
+                      final int stripes, final int maxKeysPerStripe, final LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.nanoClock = nanoClock;
+        this.usernameBuckets = new BucketTable(usernameCapacity, usernameRefillPerMinute, stripes, maxKeysPerStripe);
+        this.addressBuckets = new BucketTable(addressCapacity, addressRefillPerMinute, stripes, maxKeysPerStripe);
+    }
+
+    /**
+     * method used for taking one sign in attempt from the buckets of the username and the client address.
+     *
+     * @param username      username the client signs in with
+     * @param clientAddress remote address of the client
+     * @throws RateLimitExceededException if either bucket is empty
+     */
+    public void acquire(final String username, final String clientAddress) throws RateLimitExceededException {
+        if (!enabled) {
+            return;
+        }
+        final long now = nanoClock.getAsLong();
+        if (!addressBuckets.tryAcquire(clientAddress, now) || !usernameBuckets.tryAcquire(username, now)) {
+            rejected.increment();
+            throw new RateLimitExceededException("ATH-003", "Too many sign in attempts, please try again later");
+        }
+    }
+
+    /**
+     * Forgets buckets which have refilled completely, as a fresh bucket behaves the same.
+     */
+    @Scheduled(fixedDelayString = "${quora.auth.rate-limit.sweep-interval-ms:60000}")
+    public void evictIdle() {
+        final long now = nanoClock.getAsLong();
+        usernameBuckets.evictFull(now);
+        addressBuckets.evictFull(now);
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public int getTrackedKeyCount() {
+        return usernameBuckets.size() + addressBuckets.size();
+    }
+
+    /**
+     * Buckets of one kind of key, spread over independently locked stripes.
+     */
+    static final class BucketTable {
+
+        private final double capacity;
+        private final double tokensPerNano;
+        private final Stripe[] stripes;
+
+        BucketTable(final int capacity, final double refillPerMinute, final int stripeCount, final int maxKeysPerStripe) {
+            this.capacity = capacity;
+            this.tokensPerNano = refillPerMinute / TimeUnit.MINUTES.toNanos(1);
+            this.stripes = new Stripe[Math.max(1, stripeCount)];
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new Stripe(maxKeysPerStripe);
+            }
+        }
+
+        boolean tryAcquire(final String key, final long now) {
+            final String bucketKey = key == null ? "" : key;
+            final Stripe stripe = stripes[(bucketKey.hashCode() & Integer.MAX_VALUE) % stripes.length];
+            synchronized (stripe) {
+                Bucket bucket = stripe.get(bucketKey);
+                if (bucket == null) {
+                    bucket = new Bucket(capacity, now);
+                    stripe.put(bucketKey, bucket);
+                }
+                final double tokens = tokensAt(bucket, now);
+                if (tokens < 1) {
+                    bucket.tokens = tokens;
+                    bucket.updatedAt = now;
+                    return false;
+                }
+                bucket.tokens = tokens - 1;
+                bucket.updatedAt = now;
+                return true;
+            }
+        }
+
+        void evictFull(final long now) {
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    final Iterator<Bucket> buckets = stripe.values().iterator();
+                    while (buckets.hasNext()) {
+                        if (tokensAt(buckets.next(), now) >= capacity) {
+                            buckets.remove();
+                        }
+                    }
+                }
+            }
+        }
+
+        int size() {
+            int size = 0;
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    size += stripe.size();
+                }
+            }
+            return size;
+        }
+
+        private double tokensAt(final Bucket bucket, final long now) {
+            return Math.min(capacity, bucket.tokens + (now - bucket.updatedAt) * tokensPerNano);
+        }
+    }
+
+    private static final class Stripe extends LinkedHashMap<String, Bucket> {
+
+        private final int maxKeys;
+
+        Stripe(final int maxKeys) {
+            super(16, 0.75f, true);
+            this.maxKeys = maxKeys;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(final Map.Entry<String, Bucket> eldest) {
+            return size() > maxKeys;
+        }
+    }
+
+    private static final class Bucket {
+
+        private double tokens;
+        private long updatedAt;
+
+        Bucket(final double tokens, final long updatedAt) {
+            this.tokens = tokens;
+            this.updatedAt = updatedAt;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.upgrad.quora.service.business;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generates version 7 uuids: a 48 bit unix timestamp in milliseconds, followed by a 12 bit counter and 62 random bits.
+ * Uuids generated later sort after earlier ones, so inserts append to the right edge of the uuid indexes
+ * instead of landing on random pages. The counter keeps uuids generated within the same millisecond ordered,
+ * and the random bits come from ThreadLocalRandom, hence generation does not contend on a shared SecureRandom.
+ */
+@Component
+@ConditionalOnProperty(name = "quora.uuid.generator", havingValue = "time-ordered", matchIfMissing = true)
+public class TimeOrderedUuidGenerator implements UuidGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final long RANDOM_MASK = 0x3FFFFFFFFFFFFFFFL;
+
+    //timestamp shifted left by the counter bits plus the counter of the last uuid generated
+    private final AtomicLong lastTick = new AtomicLong();
+
+    private final LongSupplier millisClock;
+
+    public TimeOrderedUuidGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param millisClock source of the unix time, in milliseconds, the uuids are stamped with
+     */
+    TimeOrderedUuidGenerator(final LongSupplier millisClock) {
+        this.millisClock = millisClock;
+    }
+
+    @Override
+    public UUID generate() {
+        final long tick = nextTick(millisClock.getAsLong() << COUNTER_BITS);
+        final long timestamp = tick >>> COUNTER_BITS;
+        final long counter = tick & ((1L << COUNTER_BITS) - 1);
+        final long mostSignificantBits = (timestamp << 16) | VERSION | counter;
+        final long leastSignificantBits = (ThreadLocalRandom.current().nextLong() & RANDOM_MASK) | VARIANT;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * Ticks are strictly increasing; once the counter of a millisecond is exhausted the timestamp runs ahead of the clock
+     * until the clock catches up, and a clock moving backwards does not reorder uuids either.
+     */
+    private long nextTick(final long now) {
+        while (true) {
+            final long last = lastTick.get();
+            final long next = now > last ? now : last + 1;
+            if (lastTick.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+}
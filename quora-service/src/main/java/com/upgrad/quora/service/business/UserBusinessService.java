@@ -1,16 +1,23 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.AccessTokenCache;
+import com.upgrad.quora.service.cache.AccessTokenFilter;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.exception.*;
 import com.upgrad.quora.service.type.ActionType;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.dao.QuestionDao;
 import com.upgrad.quora.service.dao.UserDao;
 import com.upgrad.quora.service.entity.UserEntity;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.Map;
 
 @Service
 public class UserBusinessService {
@@ -21,6 +28,30 @@ public class UserBusinessService {
     @Autowired
     private PasswordCryptographyProvider cryptographyProvider;
 
+    @Autowired
+    private AccessTokenCache accessTokenCache;
+
+    @Autowired
+    private JwtSessionVerifier jwtSessionVerifier;
+
+    @Autowired
+    private AccessTokenFilter accessTokenFilter;
+
+    @Autowired
+    private SessionWriteBehind sessionWriteBehind;
+
+    @Autowired
+    private QuestionDao questionDao;
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    @Autowired
+    private AnswerCountBuffer answerCountBuffer;
+
+    @Value("${quora.delete.batch-size:1000}")
+    private int deleteBatchSize;
+
     @Transactional(propagation = Propagation.REQUIRED)
     public UserEntity createUser(final UserEntity userEntity) throws SignUpRestrictedException {
 
@@ -42,27 +73,35 @@ public class UserBusinessService {
         return userDao.createUser(userEntity);
 
     }
+    /**
+     * method used for signing out a session. The sign out time is written with a single conditional update,
+     * so the session is revoked in the database before the sign out returns, unless SessionWriteBehind runs
+     * in write-behind mode, which revokes the token in memory and writes the sign out with its next batch.
+     */
     @Transactional(propagation = Propagation.REQUIRED)
     public UserAuthEntity signout(final String accessToken) throws SignOutRestrictedException {
-        UserAuthEntity userAuthEntity = userDao.getAuthByAccessToken(accessToken);
+        UserAuthEntity userAuthEntity = findSession(accessToken);
         if (userAuthEntity == null) {
             throw new SignOutRestrictedException("SGR-001", "User is not Signed in");
         }
-        userAuthEntity.setLogoutAt(ZonedDateTime.now());
-        return userDao.signOut(userAuthEntity);
+        sessionWriteBehind.signOut(userAuthEntity, ZonedDateTime.now());
+        accessTokenCache.invalidate(accessToken);
+        jwtSessionVerifier.revoke(accessToken);
+        return userAuthEntity;
     }
     public UserEntity getUser(final String userUuid){
         return userDao.getUser(userUuid);
     }
     public UserEntity userProfile(final String userUuid,final String accessToken) throws AuthenticationFailedException,UserNotFoundException{
-        UserAuthEntity userAuthEntity = userDao.getAuthByAccessToken(accessToken);
-        UserEntity userEntity =  userDao.getUser(userUuid);
+        UserAuthEntity userAuthEntity = findSession(accessToken);
         if (userAuthEntity == null) {
             throw new AuthenticationFailedException("ATHR-001", "User has not signed in");
         }
-        if (userAuthEntity.getLogoutAt() != null) {
+        if (isSignedOut(userAuthEntity)) {
             throw new AuthenticationFailedException("ATHR-002", "User is signed out.Sign in first to get user details");
         }
+        //users looking at their own profile need no second lookup
+        UserEntity userEntity = userUuid.equals(userAuthEntity.getUuid()) ? userAuthEntity.getUser() : userDao.getUser(userUuid);
         if(userEntity == null){
             throw new UserNotFoundException("USR-001", "User with entered uuid does not exist");
         }else{
@@ -70,13 +109,19 @@ public class UserBusinessService {
         }
     }
 
+    /**
+     * method used for deleting a user together with everything depending on it.
+     * Answers, questions and sessions are deleted explicitly in bounded batches within one transaction,
+     * so no single statement holds locks on a large part of a table and the caches are evicted along the way.
+     */
+    @Transactional(propagation = Propagation.REQUIRED)
     public UserAuthEntity deleteUser(final String userUuid,final String accessToken) throws AuthenticationFailedException,UserNotFoundException{
-        UserAuthEntity userAuthEntity = userDao.getAuthByAccessToken(accessToken);
+        UserAuthEntity userAuthEntity = userDao.getAuthWithUserByAccessToken(accessToken);
         UserEntity userEntity =  userDao.getUser(userUuid);
         if (userAuthEntity == null) {
                 throw new AuthenticationFailedException("ATHR-001", "User has not signed in");
          }
-        if (userAuthEntity.getLogoutAt() != null) {
+        if (isSignedOut(userAuthEntity)) {
             throw new AuthenticationFailedException("ATHR-002", "User is signed out");
         }
         if(userEntity == null){
@@ -85,23 +130,76 @@ public class UserBusinessService {
         if (userEntity.getRole().equalsIgnoreCase("nonadmin")) {
                 throw new AuthenticationFailedException("ATHR-003", "Unauthorized Access, Entered user is not an admin");
             }
-            userDao.deleteUser(userEntity,userAuthEntity);
+            final Integer userId = userEntity.getId();
+            final Map<Integer, Long> answerCounts = answerDao.getAnswerCountsOfUserOnOtherQuestions(userId);
+            answerDao.removeVotesOfUser(userId);
+            answerDao.deleteAnswersOfUser(userId, deleteBatchSize);
+            for (Map.Entry<Integer, Long> answerCount : answerCounts.entrySet()) {
+                answerCountBuffer.add(answerCount.getKey(), -answerCount.getValue());
+            }
+            questionDao.deleteQuestionsOfUser(userId, deleteBatchSize);
+            userDao.deleteSessionsOfUser(userId, deleteBatchSize);
+            userDao.deleteSessions(Collections.singletonList(userAuthEntity.getId()));
+            userDao.deleteUser(userId);
+            accessTokenCache.invalidateUser(userEntity.getUuid());
+            accessTokenCache.invalidate(accessToken);
+            jwtSessionVerifier.revokeUser(userEntity.getUuid());
+            jwtSessionVerifier.revoke(accessToken);
             return userAuthEntity;
         }
 
     public UserAuthEntity getUserByAccessToken(String authorizationToken) throws AuthorizationFailedException {
-        UserAuthEntity userAuthTokenEntity = userDao.getAuthByAccessToken(authorizationToken);
+        //server signed tokens are verified in memory when stateless mode is enabled
+        UserAuthEntity userAuthTokenEntity = jwtSessionVerifier.verify(authorizationToken);
+        if (userAuthTokenEntity == null) {
+            userAuthTokenEntity = findSession(authorizationToken);
+        }
         if (userAuthTokenEntity == null) {
             throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
         }
-        if (userAuthTokenEntity.getLogoutAt() != null) {
+        if (isSignedOut(userAuthTokenEntity)) {
             throw new AuthorizationFailedException("ATHR-002", "User is signed out.Sign in first to delete a question");
         }
-        UserEntity userEntity =  userDao.getUser(userAuthTokenEntity.getUuid());
-        if (userEntity.getRole().equalsIgnoreCase("nonadmin")) {
+        if (userAuthTokenEntity.getUser().getRole().equalsIgnoreCase("nonadmin")) {
             throw new AuthorizationFailedException("ATHR-003", "Only the question owner or admin can delete the question");
         }
         return userAuthTokenEntity;
     }
 
+    /**
+     * A session is signed out once its sign out is written or while the sign out is waiting in the write-behind buffer.
+     */
+    private boolean isSignedOut(final UserAuthEntity userAuthEntity) {
+        return userAuthEntity.getLogoutAt() != null || sessionWriteBehind.isSignedOut(userAuthEntity.getAccessToken());
+    }
+
+    /**
+     * method used for resolving the session of an access token together with its user.
+     * Live sessions are served from the in-process cache, tokens which were never issued are rejected
+     * by the token filter and only the remaining lookups run the fetch-join query.
+     * The returned session may be shared and detached, hence it must not be modified or removed.
+     *
+     * @param accessToken access token of the user
+     * @return session with its user or null if the token does not exist
+     */
+    private UserAuthEntity findSession(final String accessToken) {
+        UserAuthEntity userAuthEntity = accessTokenCache.get(accessToken);
+        if (userAuthEntity != null) {
+            return userAuthEntity;
+        }
+        if (!accessTokenFilter.mightContain(accessToken)) {
+            return null;
+        }
+        userAuthEntity = userDao.getAuthWithUserByAccessToken(accessToken);
+        if (userAuthEntity == null) {
+            accessTokenFilter.recordFalsePositive();
+            return null;
+        }
+        //the row may predate a sign out which is still being written
+        if (!sessionWriteBehind.isSignedOut(accessToken)) {
+            accessTokenCache.put(userAuthEntity);
+        }
+        return userAuthEntity;
+    }
+
 }
@@ -0,0 +1,124 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.UserDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Removes sessions from the USER_AUTH table once they have been expired or signed out for longer than the retention period.
+ * A session counts as expired only when its refresh token has expired as well.
+ * Rows are deleted in small batches, each in its own short transaction with a pause in between,
+ * so that the reaper never holds locks long enough to delay sign ins.
+ * In stateless JWT mode signed out sessions are kept until they expire, because the revocation list is read from them.
+ * Revocations of deleted users are removed once every token they cover has expired.
+ */
+@Component
+public class UserSessionReaper {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UserSessionReaper.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private JwtSessionVerifier jwtSessionVerifier;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final boolean enabled;
+    private final long retentionHours;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final long pauseMillis;
+
+    private final LongAdder reaped = new LongAdder();
+
+    private volatile long lastRunReaped;
+    private volatile long lastRunMillis;
+    private volatile long sessionCountEstimate = -1;
+
+    @Autowired
+    public UserSessionReaper(@Value("${quora.auth.session-reaper.enabled:true}") final boolean enabled,
+                             @Value("${quora.auth.session-reaper.retention-hours:24}") final long retentionHours,
+                             @Value("${quora.auth.session-reaper.batch-size:1000}") final int batchSize,
+                             @Value("${quora.auth.session-reaper.max-batches-per-run:100}") final int maxBatchesPerRun,
+                             @Value("${quora.auth.session-reaper.pause-ms:200}") final long pauseMillis) {
+        this.enabled = enabled;
+        this.retentionHours = retentionHours;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.pauseMillis = pauseMillis;
+    }
+
+    /**
+     * Deletes up to max-batches-per-run batches of reapable sessions. Whatever is left is picked up by the next run.
+     */
+    @Scheduled(initialDelayString = "${quora.auth.session-reaper.interval-ms:600000}",
+            fixedDelayString = "${quora.auth.session-reaper.interval-ms:600000}")
+    public synchronized void reap() {
+        if (!enabled) {
+            return;
+        }
+        final long start = System.currentTimeMillis();
+        final ZonedDateTime cutoff = ZonedDateTime.now().minusHours(retentionHours);
+        final ZonedDateTime signedOutBefore = jwtSessionVerifier.isEnabled() ? null : cutoff;
+        final TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long runReaped = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                final Integer deleted = transactionTemplate.execute(status -> {
+                    final List<Long> ids = userDao.getReapableSessionIds(cutoff, signedOutBefore, batchSize);
+                    return ids.isEmpty() ? 0 : userDao.deleteSessions(ids);
+                });
+                runReaped += deleted;
+                reaped.add(deleted);
+                if (deleted < batchSize) {
+                    break;
+                }
+                Thread.sleep(pauseMillis);
+            }
+            final ZonedDateTime now = ZonedDateTime.now();
+            transactionTemplate.execute(status -> userDao.deleteExpiredUserRevocations(now));
+            sessionCountEstimate = transactionTemplate.execute(status -> userDao.getSessionCountEstimate());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            LOGGER.error("Session reaper run failed after removing {} sessions", runReaped, e);
+        }
+        lastRunReaped = runReaped;
+        lastRunMillis = System.currentTimeMillis() - start;
+        if (runReaped > 0) {
+            LOGGER.info("Session reaper removed {} sessions in {} ms", runReaped, lastRunMillis);
+        }
+    }
+
+    public long getReapedCount() {
+        return reaped.sum();
+    }
+
+    public long getLastRunReapedCount() {
+        return lastRunReaped;
+    }
+
+    public long getLastRunMillis() {
+        return lastRunMillis;
+    }
+
+    /**
+     * @return estimated row count of the USER_AUTH table after the last run, -1 before the first run
+     */
+    public long getSessionCountEstimate() {
+        return sessionCountEstimate;
+    }
+}
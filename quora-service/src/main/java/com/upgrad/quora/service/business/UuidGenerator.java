@@ -0,0 +1,15 @@
+package com.upgrad.quora.service.business;
+
+import java.util.UUID;
+
+/**
+ * Generates the uuids identifying newly created users, questions and answers.
+ * The implementation is chosen with quora.uuid.generator.
+ */
+public interface UuidGenerator {
+
+    /**
+     * @return new uuid
+     */
+    UUID generate();
+}
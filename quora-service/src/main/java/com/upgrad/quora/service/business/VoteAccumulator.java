@@ -0,0 +1,187 @@
+package com.upgrad.quora.service.business;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latest vote of every user on every answer, keyed by the two ids packed into a primitive long.
+ * Keys are spread over lock striped open addressing tables, so that concurrent votes rarely wait on each other
+ * and neither keys nor votes are boxed. A vote replaces the vote of the same user on the same answer still held.
+ * Ids must be positive.
+ */
+final class VoteAccumulator {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Stripe[] stripes;
+    private final int stripeShift;
+
+    //number of votes held, counted outside the stripe locks and hence momentarily off while votes are drained
+    private final LongAdder held = new LongAdder();
+
+    /**
+     * @param concurrency expected number of threads voting at once, rounded up to a power of two stripes
+     */
+    VoteAccumulator(final int concurrency) {
+        final int stripeCount = Math.max(2, Integer.highestOneBit(Math.max(concurrency, 2) - 1) << 1);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+        this.stripeShift = 64 - Integer.numberOfTrailingZeros(stripeCount);
+    }
+
+    /**
+     * @return key of the vote of a user on an answer, never zero
+     */
+    static long key(final int answerId, final int userId) {
+        return ((long) answerId << 32) | userId;
+    }
+
+    /**
+     * method used for recording a vote.
+     *
+     * @param key vote key, see key
+     * @param up  true for an upvote, false for a downvote
+     * @return true if a vote of the same user on the same answer was still held and has been replaced
+     */
+    boolean put(final long key, final boolean up) {
+        if (stripeOf(key).put(key, up, true)) {
+            return true;
+        }
+        held.increment();
+        return false;
+    }
+
+    /**
+     * method used for putting back a vote which could not be written, unless a newer vote has been recorded meanwhile.
+     *
+     * @param entry drained vote, see drain
+     */
+    void putBack(final long entry) {
+        final long key = key(answerIdOf(entry), userIdOf(entry));
+        if (!stripeOf(key).put(key, isUp(entry), false)) {
+            held.increment();
+        }
+    }
+
+    /**
+     * @return number of votes held, the votes recorded or put back and not drained yet
+     */
+    long size() {
+        return held.sum();
+    }
+
+    /**
+     * method used for taking out every vote held.
+     * The tables of the stripes are swapped for empty ones first, then decoded into a single array.
+     * Each vote is returned as one long ordering by answer id and then user id, see answerIdOf, userIdOf and isUp.
+     *
+     * @return the votes in no particular order
+     */
+    long[] drain() {
+        final long[][] keys = new long[stripes.length][];
+        final boolean[][] ups = new boolean[stripes.length][];
+        int size = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            final Stripe stripe = stripes[i];
+            synchronized (stripe) {
+                if (stripe.size == 0) {
+                    continue;
+                }
+                keys[i] = stripe.keys;
+                ups[i] = stripe.ups;
+                size += stripe.size;
+                stripe.reset();
+            }
+        }
+        held.add(-size);
+        final long[] entries = new long[size];
+        int next = 0;
+        for (int i = 0; i < stripes.length; i++) {
+            if (keys[i] == null) {
+                continue;
+            }
+            for (int slot = 0; slot < keys[i].length; slot++) {
+                final long key = keys[i][slot];
+                if (key != 0) {
+                    entries[next++] = (key & 0xFFFFFFFF00000000L) | ((key & 0xFFFFFFFFL) << 1) | (ups[i][slot] ? 1 : 0);
+                }
+            }
+        }
+        return entries;
+    }
+
+    static int answerIdOf(final long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    static int userIdOf(final long entry) {
+        return (int) ((entry & 0xFFFFFFFFL) >>> 1);
+    }
+
+    static boolean isUp(final long entry) {
+        return (entry & 1) == 1;
+    }
+
+    private Stripe stripeOf(final long key) {
+        return stripes[(int) (mix(key) >>> stripeShift)];
+    }
+
+    private static long mix(final long key) {
+        return key * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * Linear probing table of one stripe, zero marks an empty slot.
+     */
+    private static final class Stripe {
+
+        private long[] keys;
+        private boolean[] ups;
+        private int size;
+
+        Stripe() {
+            reset();
+        }
+
+        void reset() {
+            keys = new long[INITIAL_CAPACITY];
+            ups = new boolean[INITIAL_CAPACITY];
+            size = 0;
+        }
+
+        synchronized boolean put(final long key, final boolean up, final boolean replace) {
+            if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+            }
+            final int mask = keys.length - 1;
+            int slot = (int) (mix(key) >>> 16) & mask;
+            while (keys[slot] != 0) {
+                if (keys[slot] == key) {
+                    if (replace) {
+                        ups[slot] = up;
+                    }
+                    return true;
+                }
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            ups[slot] = up;
+            size++;
+            return false;
+        }
+
+        private void grow() {
+            final long[] oldKeys = keys;
+            final boolean[] oldUps = ups;
+            keys = new long[oldKeys.length * 2];
+            ups = new boolean[oldKeys.length * 2];
+            size = 0;
+            for (int slot = 0; slot < oldKeys.length; slot++) {
+                if (oldKeys[slot] != 0) {
+                    put(oldKeys[slot], oldUps[slot], true);
+                }
+            }
+        }
+    }
+}
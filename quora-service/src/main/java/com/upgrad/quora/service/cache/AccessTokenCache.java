@@ -0,0 +1,141 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.ZonedDateTime;
+import java.util.Set;
+
+/**
+ * In-process cache of signed in sessions keyed by access token.
+ * Only live sessions are cached and no entry outlives the expiry of its session.
+ * Entries are invalidated on sign out and when the owning user is deleted.
+ * Invalidation is repeated after the surrounding transaction completes, which drops sessions that a concurrent
+ * lookup may have cached from the rows as they were before the commit.
+ * The cache is held per process, hence sign outs, refreshes and user removals made by other instances are picked up
+ * by a periodic sync with the sessions signed out and the users revoked since, which bounds the time another instance
+ * keeps accepting such a token to the sync interval rather than the time to live.
+ */
+@Component
+public class AccessTokenCache {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessTokenCache.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    private final BoundedTtlCache<String, UserAuthEntity> sessions;
+
+    private volatile ZonedDateTime lastSyncAt = ZonedDateTime.now();
+
+    @Autowired
+    public AccessTokenCache(@Value("${quora.auth.token-cache.max-size:10000}") final int maxSize,
+                            @Value("${quora.auth.token-cache.ttl-seconds:300}") final long ttlSeconds) {
+        this.sessions = new BoundedTtlCache<>(maxSize, ttlSeconds * 1000L);
+    }
+
+    /**
+     * method used for getting the cached session of an access token.
+     *
+     * @param accessToken access token of the user
+     * @return cached session or null on a miss
+     */
+    public UserAuthEntity get(final String accessToken) {
+        return sessions.get(accessToken);
+    }
+
+    /**
+     * method used for caching a resolved session. Signed out sessions are not cached.
+     *
+     * @param userAuthEntity session resolved from the database
+     */
+    public void put(final UserAuthEntity userAuthEntity) {
+        if (userAuthEntity.getLogoutAt() != null) {
+            return;
+        }
+        final long expiresAt = userAuthEntity.getExpiresAt() == null
+                ? Long.MAX_VALUE : userAuthEntity.getExpiresAt().toInstant().toEpochMilli();
+        sessions.put(userAuthEntity.getAccessToken(), userAuthEntity, expiresAt);
+    }
+
+    /**
+     * method used for dropping the session of a single access token.
+     *
+     * @param accessToken access token of the user
+     */
+    public void invalidate(final String accessToken) {
+        invalidate(() -> sessions.remove(accessToken));
+    }
+
+    /**
+     * method used for dropping every cached session of a user.
+     *
+     * @param userUuid uuid of the user
+     */
+    public void invalidateUser(final String userUuid) {
+        invalidate(() -> sessions.removeIf((accessToken, session) -> userUuid.equals(session.getUuid())));
+    }
+
+    /**
+     * Drops the cached sessions signed out and of the users revoked since the previous sync, by this or any other instance.
+     */
+    @Scheduled(fixedDelayString = "${quora.auth.token-cache.sync-interval-ms:10000}")
+    public synchronized void sync() {
+        final ZonedDateTime syncStartedAt = ZonedDateTime.now();
+        //an empty cache holds nothing to drop, sessions cached meanwhile are covered by the overlap of the next sync
+        if (sessions.size() == 0) {
+            lastSyncAt = syncStartedAt;
+            return;
+        }
+        try {
+            //overlap the previous sync so that sign outs committed while it ran are not missed
+            final ZonedDateTime since = lastSyncAt.minusMinutes(1);
+            for (String accessToken : userDao.getAccessTokensSignedOutSince(since, syncStartedAt)) {
+                sessions.remove(accessToken);
+            }
+            final Set<String> revokedUsers = userDao.getUsersRevokedSince(since, syncStartedAt).keySet();
+            if (!revokedUsers.isEmpty()) {
+                sessions.removeIf((accessToken, session) -> revokedUsers.contains(session.getUuid()));
+            }
+            lastSyncAt = syncStartedAt;
+        } catch (RuntimeException e) {
+            LOGGER.error("Access token cache sync failed, retrying with the next run", e);
+        }
+    }
+
+    private void invalidate(final Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    public long getHitCount() {
+        return sessions.getHitCount();
+    }
+
+    public long getMissCount() {
+        return sessions.getMissCount();
+    }
+
+    public long getEvictionCount() {
+        return sessions.getEvictionCount();
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+}
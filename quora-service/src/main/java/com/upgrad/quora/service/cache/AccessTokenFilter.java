@@ -0,0 +1,324 @@
+package com.upgrad.quora.service.cache;
+
+import com.auth0.jwt.JWT;
+import com.auth0.jwt.exceptions.JWTDecodeException;
+import com.upgrad.quora.service.dao.UserDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.ZonedDateTime;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bloom filter over the access tokens present in the USER_AUTH table.
+ * The filter is held per process: it is rebuilt from the database at startup and periodically, which drops tokens
+ * of removed sessions, and synced every few seconds with the tokens issued since, including those issued by other
+ * instances. Tokens issued by this instance are added as soon as their session commits.
+ * Every token issued before the last rebuild or sync started, less a minute for sessions still committing then,
+ * is thus known to the filter. A token the filter has never seen is rejected without a database query only if it
+ * was issued before that point; younger tokens and tokens of other instances not synced yet go to the database.
+ * Signed out sessions stay in the filter because their rows remain in the table.
+ * Until the first rebuild completes every token is let through.
+ */
+@Component
+public class AccessTokenFilter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessTokenFilter.class);
+
+    @Autowired
+    private UserDao userDao;
+
+    private final long expectedInsertions;
+    private final double falsePositiveProbability;
+    private final int rebuildBatchSize;
+
+    private volatile BloomFilter active;
+    private volatile BloomFilter building;
+    private volatile boolean ready;
+
+    //epoch millis before which every issued token is known to the filter
+    private volatile long coveredBeforeMillis;
+    private volatile ZonedDateTime lastSyncAt;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder passed = new LongAdder();
+    private final LongAdder uncovered = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    @Autowired
+    public AccessTokenFilter(@Value("${quora.auth.token-filter.expected-insertions:1000000}") final long expectedInsertions,
+                             @Value("${quora.auth.token-filter.false-positive-probability:0.01}") final double falsePositiveProbability,
+                             @Value("${quora.auth.token-filter.rebuild-batch-size:5000}") final int rebuildBatchSize) {
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveProbability = falsePositiveProbability;
+        this.rebuildBatchSize = rebuildBatchSize;
+        this.active = new BloomFilter(expectedInsertions, falsePositiveProbability);
+    }
+
+    /**
+     * method used for registering the access token of a new session once the surrounding transaction commits.
+     * Outside a transaction the token is registered at once.
+     *
+     * @param accessToken access token of the user
+     */
+    public void put(final String accessToken) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            add(accessToken);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                add(accessToken);
+            }
+        });
+    }
+
+    /**
+     * Adds the token to the active filter and to the filter being rebuilt, if any.
+     * The token is added again whenever a rebuild swapped the active filter meanwhile, hence it is never lost:
+     * a rebuild which started before the token was added holds it as its building filter, and one which started
+     * later reads it from the committed session.
+     */
+    private void add(final String accessToken) {
+        BloomFilter filter = active;
+        while (true) {
+            filter.put(accessToken);
+            final BloomFilter inProgress = building;
+            if (inProgress != null) {
+                inProgress.put(accessToken);
+            }
+            final BloomFilter current = active;
+            if (current == filter) {
+                return;
+            }
+            filter = current;
+        }
+    }
+
+    /**
+     * method used for checking whether an access token may exist in the USER_AUTH table.
+     *
+     * @param accessToken access token of the user
+     * @return false only if the token certainly does not exist
+     */
+    public boolean mightContain(final String accessToken) {
+        if (!ready || active.mightContain(accessToken)) {
+            passed.increment();
+            return true;
+        }
+        if (issuedSinceCoverage(accessToken)) {
+            uncovered.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * @return true if the token may have been issued after the point up to which the filter knows every token
+     */
+    private boolean issuedSinceCoverage(final String accessToken) {
+        try {
+            final Date issuedAt = JWT.decode(accessToken).getIssuedAt();
+            return issuedAt != null && issuedAt.getTime() >= coveredBeforeMillis;
+        } catch (JWTDecodeException e) {
+            //every issued access token is a JWT
+            return false;
+        }
+    }
+
+    /**
+     * method used for recording a token which passed the filter but was not found in the database.
+     */
+    public void recordFalsePositive() {
+        if (ready) {
+            falsePositives.increment();
+        }
+    }
+
+    /**
+     * Rebuilds the filter from the USER_AUTH table when the application has started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Rebuilds the filter periodically so that tokens of removed sessions are forgotten.
+     */
+    @Scheduled(initialDelayString = "${quora.auth.token-filter.rebuild-interval-ms:21600000}",
+            fixedDelayString = "${quora.auth.token-filter.rebuild-interval-ms:21600000}")
+    public synchronized void rebuild() {
+        final long start = System.currentTimeMillis();
+        final ZonedDateTime rebuildStartedAt = ZonedDateTime.now();
+        final BloomFilter fresh = new BloomFilter(expectedInsertions, falsePositiveProbability);
+        building = fresh;
+        try {
+            long tokens = 0;
+            long lastId = 0;
+            List<Object[]> batch;
+            do {
+                batch = userDao.getAccessTokensAfterId(lastId, rebuildBatchSize);
+                for (Object[] row : batch) {
+                    lastId = (Long) row[0];
+                    fresh.put((String) row[1]);
+                }
+                tokens += batch.size();
+            } while (batch.size() == rebuildBatchSize);
+            //catch up on sign ins which registered their token just before the rebuild started
+            for (String accessToken : userDao.getAccessTokensLoggedInSince(rebuildStartedAt.minusMinutes(1))) {
+                fresh.put(accessToken);
+            }
+            active = fresh;
+            coveredBeforeMillis = rebuildStartedAt.minusMinutes(1).toInstant().toEpochMilli();
+            lastSyncAt = rebuildStartedAt;
+            ready = true;
+            LOGGER.info("Access token filter rebuilt with {} tokens in {} ms", tokens, System.currentTimeMillis() - start);
+        } catch (RuntimeException e) {
+            LOGGER.error("Access token filter rebuild failed, keeping the previous filter", e);
+        } finally {
+            building = null;
+        }
+    }
+
+    /**
+     * Adds the tokens issued since the previous rebuild or sync, by this or any other instance.
+     */
+    @Scheduled(fixedDelayString = "${quora.auth.token-filter.sync-interval-ms:10000}")
+    public synchronized void sync() {
+        if (!ready) {
+            return;
+        }
+        final ZonedDateTime syncStartedAt = ZonedDateTime.now();
+        try {
+            //overlap the previous sync so that sessions committed while it ran are not missed
+            for (String accessToken : userDao.getAccessTokensLoggedInSince(lastSyncAt.minusMinutes(1))) {
+                add(accessToken);
+            }
+            coveredBeforeMillis = syncStartedAt.minusMinutes(1).toInstant().toEpochMilli();
+            lastSyncAt = syncStartedAt;
+        } catch (RuntimeException e) {
+            LOGGER.error("Access token filter sync failed, retrying with the next run", e);
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    public long getPassedCount() {
+        return passed.sum();
+    }
+
+    /**
+     * @return number of tokens unknown to the filter which were looked up in the database for being younger than its last sync
+     */
+    public long getUncoveredCount() {
+        return uncovered.sum();
+    }
+
+    public long getFalsePositiveCount() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * @return share of unknown tokens which passed the filter and cost a database query
+     */
+    public double getObservedFalsePositiveRate() {
+        final long falsePositiveCount = falsePositives.sum();
+        final long unknown = falsePositiveCount + rejected.sum();
+        return unknown == 0 ? 0.0 : (double) falsePositiveCount / unknown;
+    }
+
+    /**
+     * @return false positive rate expected from the current fill of the filter
+     */
+    public double getExpectedFalsePositiveRate() {
+        return active.expectedFalsePositiveRate();
+    }
+
+    /**
+     * Fixed size bloom filter over strings using double hashing on two 64 bit hashes.
+     */
+    static final class BloomFilter {
+
+        private final AtomicLongArray words;
+        private final long bitCount;
+        private final int hashCount;
+
+        BloomFilter(final long expectedInsertions, final double falsePositiveProbability) {
+            final long n = Math.max(expectedInsertions, 1);
+            final double p = Math.min(Math.max(falsePositiveProbability, Double.MIN_VALUE), 0.5);
+            final long bits = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+            this.words = new AtomicLongArray((int) Math.min((bits + 63) / 64, Integer.MAX_VALUE));
+            this.bitCount = (long) words.length() * 64;
+            this.hashCount = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+        }
+
+        void put(final String value) {
+            final long hash1 = hash(value, 0xcbf29ce484222325L);
+            final long hash2 = hash(value, 0x84222325cbf29ce4L) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                final long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+                final int index = (int) (bit >>> 6);
+                final long mask = 1L << bit;
+                long word;
+                do {
+                    word = words.get(index);
+                } while ((word & mask) == 0 && !words.compareAndSet(index, word, word | mask));
+            }
+        }
+
+        boolean mightContain(final String value) {
+            final long hash1 = hash(value, 0xcbf29ce484222325L);
+            final long hash2 = hash(value, 0x84222325cbf29ce4L) | 1;
+            for (int i = 0; i < hashCount; i++) {
+                final long bit = ((hash1 + i * hash2) & Long.MAX_VALUE) % bitCount;
+                if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        double expectedFalsePositiveRate() {
+            long setBits = 0;
+            for (int i = 0; i < words.length(); i++) {
+                setBits += Long.bitCount(words.get(i));
+            }
+            return Math.pow((double) setBits / bitCount, hashCount);
+        }
+
+        //FNV-1a over the characters followed by a murmur3 finalizer
+        private static long hash(final String value, final long seed) {
+            long hash = seed;
+            for (int i = 0; i < value.length(); i++) {
+                hash ^= value.charAt(i);
+                hash *= 0x100000001b3L;
+            }
+            hash ^= hash >>> 33;
+            hash *= 0xff51afd7ed558ccdL;
+            hash ^= hash >>> 33;
+            hash *= 0xc4ceb9fe1a85ec53L;
+            hash ^= hash >>> 33;
+            return hash;
+        }
+    }
+}
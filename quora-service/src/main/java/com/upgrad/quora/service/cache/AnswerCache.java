@@ -0,0 +1,49 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.entity.Answer;
+import com.upgrad.quora.service.entity.Question;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of answers keyed by uuid in front of AnswerDao.getAnswerForUuId.
+ * The question of a cached answer only carries its id, uuid and owner, which never change,
+ * so that editing a question leaves the cached answers valid.
+ */
+@Component
+public class AnswerCache extends EntityCache<Answer> {
+
+    @Autowired
+    public AnswerCache(@Value("${quora.cache.answer.enabled:true}") final boolean enabled,
+                       @Value("${quora.cache.answer.max-size:10000}") final int maxSize,
+                       @Value("${quora.cache.answer.ttl-seconds:60}") final long ttlSeconds) {
+        super(enabled, maxSize, ttlSeconds);
+    }
+
+    @Override
+    protected String uuidOf(final Answer answer) {
+        return answer.getUuid();
+    }
+
+    @Override
+    protected Answer copyOf(final Answer answer) {
+        final Answer copy = new Answer();
+        copy.setId(answer.getId());
+        copy.setUuid(answer.getUuid());
+        copy.setAnswer(answer.getAnswer());
+        copy.setDate(answer.getDate());
+        copy.setUser(answer.getUser());
+        copy.setQuestion(questionReferenceOf(answer.getQuestion()));
+        copy.setScore(answer.getScore());
+        return copy;
+    }
+
+    private static Question questionReferenceOf(final Question question) {
+        final Question reference = new Question();
+        reference.setId(question.getId());
+        reference.setUuid(question.getUuid());
+        reference.setUser(question.getUser());
+        return reference;
+    }
+}
@@ -0,0 +1,239 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.dto.QuestionAnswersPage;
+import com.upgrad.quora.service.type.AnswerSortType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Cache of the answer listing pages of questions, in front of AnswerService.getAnswersForQuestion.
+ * All cached pages of a question hang off a single entry keyed by the question uuid, so a write to the question
+ * or to any of its answers drops them together, while a vote drops only the pages of the orders it may change.
+ * Concurrent misses of the same page share a single load.
+ * Invalidation is repeated after the surrounding transaction completes, which drops pages that a concurrent
+ * lookup may have loaded from the rows as they were before the commit.
+ * Cached pages are shared between requests and must not be modified.
+ */
+@Component
+public class AnswerListCache {
+
+    /**
+     * Most pages cached for one question, further pages are loaded without being cached.
+     */
+    private static final int MAX_PAGES_PER_QUESTION = 16;
+
+    private static final String PAGE_KEY_SEPARATOR = "/";
+
+    private final BoundedTtlCache<String, ConcurrentMap<String, CompletableFuture<QuestionAnswersPage>>> questions;
+    private final Map<String, QuestionHitStats> questionStats;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param enabled    whether the cache is used at all
+     * @param maxSize    maximum number of questions whose pages are cached, and whose lookups are counted
+     * @param ttlSeconds time to live of the cached pages of a question
+     */
+    @Autowired
+    public AnswerListCache(@Value("${quora.cache.answer-list.enabled:true}") final boolean enabled,
+                           @Value("${quora.cache.answer-list.max-size:1000}") final int maxSize,
+                           @Value("${quora.cache.answer-list.ttl-seconds:30}") final long ttlSeconds) {
+        this.questions = new BoundedTtlCache<>(enabled ? maxSize : 0, ttlSeconds * 1000L);
+        this.questionStats = new LinkedHashMap<String, QuestionHitStats>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, QuestionHitStats> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * method used for getting a page of the answer listing of a question, loading it on a miss.
+     * A miss joins the load of the same page already running in another thread, if any.
+     *
+     * @param questionUuId uuid of the question
+     * @param sort         order of the listing
+     * @param pageKey      key of the page within the listing of the question in that order
+     * @param loader       loads the page, returns null if the question does not exist
+     * @return the page or null if the question does not exist
+     */
+    public QuestionAnswersPage get(final String questionUuId, final AnswerSortType sort, final String pageKey,
+                                   final Supplier<QuestionAnswersPage> loader) {
+        if (!questions.isEnabled()) {
+            return loader.get();
+        }
+        return get(questionUuId, sort + PAGE_KEY_SEPARATOR + pageKey, loader);
+    }
+
+    private QuestionAnswersPage get(final String questionUuId, final String pageKey, final Supplier<QuestionAnswersPage> loader) {
+        final ConcurrentMap<String, CompletableFuture<QuestionAnswersPage>> pages = pagesOf(questionUuId);
+        CompletableFuture<QuestionAnswersPage> page = pages.get(pageKey);
+        if (page == null) {
+            if (pages.size() >= MAX_PAGES_PER_QUESTION) {
+                record(questionUuId, false);
+                return loader.get();
+            }
+            final CompletableFuture<QuestionAnswersPage> load = new CompletableFuture<>();
+            page = pages.putIfAbsent(pageKey, load);
+            if (page == null) {
+                record(questionUuId, false);
+                return load(pages, pageKey, load, loader);
+            }
+        }
+        record(questionUuId, true);
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+        }
+    }
+
+    private ConcurrentMap<String, CompletableFuture<QuestionAnswersPage>> pagesOf(final String questionUuId) {
+        return questions.getOrPut(questionUuId, ConcurrentHashMap::new);
+    }
+
+    /**
+     * Runs the load and hands its outcome to the threads waiting for it.
+     * Pages of questions invalidated meanwhile are stored into an entry no longer reachable from the cache.
+     */
+    private static QuestionAnswersPage load(final ConcurrentMap<String, CompletableFuture<QuestionAnswersPage>> pages, final String pageKey,
+                                            final CompletableFuture<QuestionAnswersPage> load, final Supplier<QuestionAnswersPage> loader) {
+        final QuestionAnswersPage page;
+        try {
+            page = loader.get();
+        } catch (RuntimeException e) {
+            pages.remove(pageKey, load);
+            load.completeExceptionally(e);
+            throw e;
+        }
+        if (page == null) {
+            pages.remove(pageKey, load);
+        }
+        load.complete(page);
+        return page;
+    }
+
+    /**
+     * method used for dropping the cached pages of a question whose content or answers are being changed.
+     *
+     * @param questionUuId uuid of the question
+     */
+    public void invalidate(final String questionUuId) {
+        invalidate(() -> questions.remove(questionUuId));
+    }
+
+    /**
+     * method used for dropping the cached pages of a question listed in one order, for changes which may only
+     * reorder that listing, such as votes moving scores.
+     *
+     * @param questionUuId uuid of the question
+     * @param sort         order of the listing whose pages are dropped
+     */
+    public void invalidate(final String questionUuId, final AnswerSortType sort) {
+        final String prefix = sort + PAGE_KEY_SEPARATOR;
+        invalidate(() -> {
+            final ConcurrentMap<String, CompletableFuture<QuestionAnswersPage>> pages = questions.get(questionUuId);
+            if (pages != null) {
+                pages.keySet().removeIf(pageKey -> pageKey.startsWith(prefix));
+            }
+        });
+    }
+
+    /**
+     * method used for dropping every cached page, for changes spanning many questions such as user removal.
+     */
+    public void invalidateAll() {
+        invalidate(questions::clear);
+    }
+
+    private void invalidate(final Runnable invalidation) {
+        if (!questions.isEnabled()) {
+            return;
+        }
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    private void record(final String questionUuId, final boolean hit) {
+        (hit ? hits : misses).increment();
+        QuestionHitStats stats;
+        synchronized (questionStats) {
+            stats = questionStats.get(questionUuId);
+            if (stats == null) {
+                stats = new QuestionHitStats(questionUuId);
+                questionStats.put(questionUuId, stats);
+            }
+        }
+        stats.record(hit);
+    }
+
+    /**
+     * method used for finding the questions whose answers are looked up most.
+     *
+     * @param limit number of questions to return
+     * @return lookup counters of the most looked up questions, most lookups first
+     */
+    public List<QuestionHitStats> getHottestQuestions(final int limit) {
+        final List<QuestionHitStats> snapshot;
+        synchronized (questionStats) {
+            snapshot = new ArrayList<>(questionStats.values());
+        }
+        snapshot.sort(Comparator.comparingLong(QuestionHitStats::getLookupCount).reversed());
+        return snapshot.subList(0, Math.min(limit, snapshot.size()));
+    }
+
+    public boolean isEnabled() {
+        return questions.isEnabled();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return share of lookups served from the cache, loads joined by concurrent misses included
+     */
+    public double getHitRatio() {
+        final long hitCount = hits.sum();
+        final long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+
+    public long getEvictionCount() {
+        return questions.getEvictionCount();
+    }
+
+    /**
+     * @return number of questions with cached pages
+     */
+    public int size() {
+        return questions.size();
+    }
+}
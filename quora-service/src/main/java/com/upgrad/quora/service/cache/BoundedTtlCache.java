@@ -0,0 +1,254 @@
+package com.upgrad.quora.service.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+
+/**
+ * Size bounded, least recently used cache whose entries expire after a fixed time to live.
+ * An entry may be given an earlier expiry of its own, which is honoured in place of the time to live.
+ * A cache created with a maximum size of zero is disabled: lookups always miss and puts are ignored.
+ * Keys are spread over lock striped segments, each a least recently used map holding its share of the maximum size,
+ * so that concurrent lookups of different keys rarely wait on each other. Recency is tracked per segment.
+ *
+ * @param <K> type of the cache key
+ * @param <V> type of the cached value
+ */
+public class BoundedTtlCache<K, V> {
+
+    private static final int MAX_SEGMENTS = 64;
+
+    private final int maxSize;
+    private final long ttlMillis;
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maxSize   maximum number of entries held, zero disables the cache
+     * @param ttlMillis time to live of an entry in milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public BoundedTtlCache(final int maxSize, final long ttlMillis) {
+        this.maxSize = Math.max(maxSize, 0);
+        this.ttlMillis = ttlMillis;
+        //a power of two segments, each holding at least one entry
+        final int segmentCount = this.maxSize == 0 ? 1
+                : Math.min(Integer.highestOneBit(Math.min(this.maxSize, MAX_SEGMENTS)),
+                Integer.highestOneBit(Math.max(Runtime.getRuntime().availableProcessors(), 1) * 4));
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment<>(this.maxSize / segmentCount + (i < this.maxSize % segmentCount ? 1 : 0), evictions);
+        }
+        this.segmentMask = segmentCount - 1;
+    }
+
+    /**
+     * method used for looking up a live entry.
+     *
+     * @param key cache key
+     * @return cached value or null if absent or expired
+     */
+    public V get(final K key) {
+        final Segment<K, V> segment = segmentOf(key);
+        final long now = System.currentTimeMillis();
+        synchronized (segment) {
+            final Entry<V> entry = segment.live(key, now);
+            if (entry == null) {
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return entry.value;
+        }
+    }
+
+    /**
+     * method used for looking up a live entry, storing the value of the supplier for the time to live if there is none.
+     * The supplier runs under the lock of the key's segment and must be cheap.
+     * A disabled cache returns the value of the supplier without storing it.
+     *
+     * @param key      cache key
+     * @param supplier creates the value to be cached on a miss
+     * @return cached or created value
+     */
+    public V getOrPut(final K key, final Supplier<V> supplier) {
+        if (!isEnabled()) {
+            return supplier.get();
+        }
+        final Segment<K, V> segment = segmentOf(key);
+        final long now = System.currentTimeMillis();
+        synchronized (segment) {
+            final Entry<V> entry = segment.live(key, now);
+            if (entry != null) {
+                hits.increment();
+                return entry.value;
+            }
+            misses.increment();
+            final V value = supplier.get();
+            segment.entries.put(key, new Entry<V>(value, now + ttlMillis));
+            return value;
+        }
+    }
+
+    /**
+     * method used for storing a value for the configured time to live.
+     *
+     * @param key   cache key
+     * @param value value to be cached
+     */
+    public void put(final K key, final V value) {
+        put(key, value, Long.MAX_VALUE);
+    }
+
+    /**
+     * method used for storing a value which must not outlive the given instant.
+     *
+     * @param key             cache key
+     * @param value           value to be cached
+     * @param expiresAtMillis epoch millis after which the value is no longer valid
+     */
+    public void put(final K key, final V value, final long expiresAtMillis) {
+        if (!isEnabled()) {
+            return;
+        }
+        final long now = System.currentTimeMillis();
+        final long deadline = Math.min(now + ttlMillis, expiresAtMillis);
+        if (deadline <= now) {
+            return;
+        }
+        final Segment<K, V> segment = segmentOf(key);
+        synchronized (segment) {
+            segment.entries.put(key, new Entry<V>(value, deadline));
+        }
+    }
+
+    /**
+     * method used for invalidating a single entry.
+     *
+     * @param key cache key
+     */
+    public void remove(final K key) {
+        final Segment<K, V> segment = segmentOf(key);
+        synchronized (segment) {
+            segment.entries.remove(key);
+        }
+    }
+
+    /**
+     * method used for invalidating every entry matching the predicate.
+     * This walks the whole cache, one segment at a time, and is meant for rare events such as user removal.
+     *
+     * @param predicate condition on key and value of the entries to be removed
+     */
+    public void removeIf(final BiPredicate<K, V> predicate) {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                final Iterator<Map.Entry<K, Entry<V>>> iterator = segment.entries.entrySet().iterator();
+                while (iterator.hasNext()) {
+                    final Map.Entry<K, Entry<V>> entry = iterator.next();
+                    if (predicate.test(entry.getKey(), entry.getValue().value)) {
+                        iterator.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * method used for invalidating all entries.
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return maxSize > 0;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private Segment<K, V> segmentOf(final K key) {
+        final int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & segmentMask];
+    }
+
+    /**
+     * Least recently used map of one segment, guarded by the segment's monitor.
+     */
+    private static final class Segment<K, V> {
+
+        private final LinkedHashMap<K, Entry<V>> entries;
+        private final LongAdder evictions;
+
+        private Segment(final int maxSize, final LongAdder evictions) {
+            this.evictions = evictions;
+            this.entries = new LinkedHashMap<K, Entry<V>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<K, Entry<V>> eldest) {
+                    if (size() > maxSize) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        /**
+         * @return the entry of the key, or null if absent or expired, in which case it is removed
+         */
+        private Entry<V> live(final K key, final long now) {
+            final Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expiresAtMillis <= now) {
+                entries.remove(key);
+                evictions.increment();
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAtMillis;
+
+        private Entry(final V value, final long expiresAtMillis) {
+            this.value = value;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
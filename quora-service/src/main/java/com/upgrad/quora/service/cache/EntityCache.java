@@ -0,0 +1,127 @@
+package com.upgrad.quora.service.cache;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.function.Predicate;
+
+/**
+ * Read-through cache of entities keyed by uuid, sitting in front of the uuid lookups of a DAO.
+ * Entities are stored and handed out as detached copies, so that callers modifying the entity they got
+ * never change the cached state seen by other requests.
+ * Invalidation is repeated after the surrounding transaction completes, which drops entries that a concurrent
+ * lookup may have cached from the row as it was before the commit.
+ *
+ * @param <T> type of the cached entity
+ */
+public abstract class EntityCache<T> {
+
+    private final BoundedTtlCache<String, T> entities;
+
+    /**
+     * @param enabled    whether the cache is used at all
+     * @param maxSize    maximum number of cached entities
+     * @param ttlSeconds time to live of a cached entity
+     */
+    protected EntityCache(final boolean enabled, final int maxSize, final long ttlSeconds) {
+        this.entities = new BoundedTtlCache<>(enabled ? maxSize : 0, ttlSeconds * 1000L);
+    }
+
+    /**
+     * @return uuid of the entity
+     */
+    protected abstract String uuidOf(T entity);
+
+    /**
+     * @return detached copy of the entity sharing its associations
+     */
+    protected abstract T copyOf(T entity);
+
+    /**
+     * method used for getting a cached entity.
+     *
+     * @param uuid uuid of the entity
+     * @return detached copy of the cached entity or null on a miss
+     */
+    public T get(final String uuid) {
+        if (!entities.isEnabled()) {
+            return null;
+        }
+        final T entity = entities.get(uuid);
+        return entity == null ? null : copyOf(entity);
+    }
+
+    /**
+     * method used for caching an entity loaded from the database.
+     *
+     * @param entity loaded entity
+     */
+    public void put(final T entity) {
+        if (entities.isEnabled()) {
+            entities.put(uuidOf(entity), copyOf(entity));
+        }
+    }
+
+    /**
+     * method used for dropping an entity which is being changed or removed, by its key.
+     *
+     * @param uuid uuid of the entity
+     */
+    public void invalidate(final String uuid) {
+        invalidate(() -> entities.remove(uuid));
+    }
+
+    /**
+     * method used for dropping every cached entity matching the predicate, meant for cascading deletes only.
+     * This walks the whole cache.
+     *
+     * @param predicate condition on the cached entities to be dropped
+     */
+    public void invalidateIf(final Predicate<T> predicate) {
+        invalidate(() -> entities.removeIf((key, entity) -> predicate.test(entity)));
+    }
+
+    private void invalidate(final Runnable invalidation) {
+        if (!entities.isEnabled()) {
+            return;
+        }
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(final int status) {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    public boolean isEnabled() {
+        return entities.isEnabled();
+    }
+
+    public long getHitCount() {
+        return entities.getHitCount();
+    }
+
+    public long getMissCount() {
+        return entities.getMissCount();
+    }
+
+    /**
+     * @return share of lookups served from the cache
+     */
+    public double getHitRatio() {
+        final long hits = entities.getHitCount();
+        final long lookups = hits + entities.getMissCount();
+        return lookups == 0 ? 0.0 : (double) hits / lookups;
+    }
+
+    public long getEvictionCount() {
+        return entities.getEvictionCount();
+    }
+
+    public int size() {
+        return entities.size();
+    }
+}
@@ -0,0 +1,37 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.entity.Question;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of questions keyed by uuid in front of QuestionDao.getQuestion.
+ */
+@Component
+public class QuestionCache extends EntityCache<Question> {
+
+    @Autowired
+    public QuestionCache(@Value("${quora.cache.question.enabled:true}") final boolean enabled,
+                         @Value("${quora.cache.question.max-size:10000}") final int maxSize,
+                         @Value("${quora.cache.question.ttl-seconds:60}") final long ttlSeconds) {
+        super(enabled, maxSize, ttlSeconds);
+    }
+
+    @Override
+    protected String uuidOf(final Question question) {
+        return question.getUuid();
+    }
+
+    @Override
+    protected Question copyOf(final Question question) {
+        final Question copy = new Question();
+        copy.setId(question.getId());
+        copy.setUuid(question.getUuid());
+        copy.setContent(question.getContent());
+        copy.setDate(question.getDate());
+        copy.setUser(question.getUser());
+        copy.setAnswerCount(question.getAnswerCount());
+        return copy;
+    }
+}
@@ -0,0 +1,46 @@
+package com.upgrad.quora.service.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lookup counters of the cached answer listing of one question.
+ */
+public final class QuestionHitStats {
+
+    private final String questionUuId;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    QuestionHitStats(final String questionUuId) {
+        this.questionUuId = questionUuId;
+    }
+
+    void record(final boolean hit) {
+        (hit ? hits : misses).increment();
+    }
+
+    public String getQuestionUuId() {
+        return questionUuId;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getLookupCount() {
+        return hits.sum() + misses.sum();
+    }
+
+    /**
+     * @return share of lookups of the question served from the cache
+     */
+    public double getHitRatio() {
+        final long hitCount = hits.sum();
+        final long lookups = hitCount + misses.sum();
+        return lookups == 0 ? 0.0 : (double) hitCount / lookups;
+    }
+}
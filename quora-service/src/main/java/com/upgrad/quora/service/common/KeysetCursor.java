@@ -0,0 +1,60 @@
+package com.upgrad.quora.service.common;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by date descending and id descending, handed to clients as an opaque string.
+ * The next page starts right after the row the cursor points at, so paging stays cheap however deep it goes.
+ */
+public final class KeysetCursor implements PageCursor {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final ZonedDateTime date;
+    private final long id;
+
+    public KeysetCursor(final ZonedDateTime date, final long id) {
+        this.date = date;
+        this.id = id;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return cursor as url safe string holding the date in epoch microseconds, the precision of a database timestamp, and the id
+     */
+    @Override
+    public String encode() {
+        final long epochMicros = ChronoUnit.MICROS.between(Instant.EPOCH, date.toInstant());
+        return ENCODER.encodeToString((epochMicros + ":" + id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @param cursor cursor as returned by encode
+     * @return decoded cursor
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static KeysetCursor decode(final String cursor) {
+        final String decoded = new String(DECODER.decode(cursor), StandardCharsets.US_ASCII);
+        final int separator = decoded.indexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        final long epochMicros = Long.parseLong(decoded.substring(0, separator));
+        final long id = Long.parseLong(decoded.substring(separator + 1));
+        final Instant instant = Instant.EPOCH.plus(epochMicros, ChronoUnit.MICROS);
+        return new KeysetCursor(ZonedDateTime.ofInstant(instant, ZoneId.systemDefault()), id);
+    }
+}
@@ -0,0 +1,30 @@
+package com.upgrad.quora.service.common;
+
+import java.util.List;
+
+/**
+ * One page of a keyset paginated listing together with the cursor of the following page.
+ *
+ * @param <T> type of the listed items
+ */
+public final class KeysetPage<T> {
+
+    private final List<T> items;
+    private final PageCursor nextCursor;
+
+    public KeysetPage(final List<T> items, final PageCursor nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return cursor of the following page, null on the last page
+     */
+    public PageCursor getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,30 @@
+package com.upgrad.quora.service.common;
+
+import java.util.List;
+
+/**
+ * One page of an offset paginated listing together with the offset of the following page.
+ *
+ * @param <T> type of the listed items
+ */
+public final class OffsetPage<T> {
+
+    private final List<T> items;
+    private final Integer nextOffset;
+
+    public OffsetPage(final List<T> items, final Integer nextOffset) {
+        this.items = items;
+        this.nextOffset = nextOffset;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return offset of the following page, null on the last page
+     */
+    public Integer getNextOffset() {
+        return nextOffset;
+    }
+}
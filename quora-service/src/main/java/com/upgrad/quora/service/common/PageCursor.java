@@ -0,0 +1,12 @@
+package com.upgrad.quora.service.common;
+
+/**
+ * Position in a keyset paginated listing, handed to clients as an opaque string.
+ */
+public interface PageCursor {
+
+    /**
+     * @return cursor as url safe string
+     */
+    String encode();
+}
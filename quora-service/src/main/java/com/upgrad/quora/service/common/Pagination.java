@@ -0,0 +1,130 @@
+package com.upgrad.quora.service.common;
+
+import com.upgrad.quora.service.exception.InvalidPageRequestException;
+import com.upgrad.quora.service.type.AnswerSortType;
+
+import java.time.DateTimeException;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Validation of page requests and assembly of keyset pages shared by the paginated listings.
+ */
+public final class Pagination {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int MAX_OFFSET = 1000;
+
+    private Pagination() {
+    }
+
+    /**
+     * @param limit page size requested by the client, may be null
+     * @return page size to use
+     * @throws InvalidPageRequestException if the page size is out of range
+     */
+    public static int pageSize(final Integer limit) throws InvalidPageRequestException {
+        if (limit == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new InvalidPageRequestException("PAGE-002", "Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        return limit;
+    }
+
+    /**
+     * @param offset number of items to skip requested by the client, may be null
+     * @return offset to use
+     * @throws InvalidPageRequestException if the offset is out of range
+     */
+    public static int offset(final Integer offset) throws InvalidPageRequestException {
+        if (offset == null) {
+            return 0;
+        }
+        if (offset < 0 || offset > MAX_OFFSET) {
+            throw new InvalidPageRequestException("PAGE-003", "Offset must be between 0 and " + MAX_OFFSET);
+        }
+        return offset;
+    }
+
+    /**
+     * @param cursor cursor sent by the client, may be null for the first page
+     * @return decoded cursor or null for the first page
+     * @throws InvalidPageRequestException if the cursor is malformed
+     */
+    public static KeysetCursor cursor(final String cursor) throws InvalidPageRequestException {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException | ArithmeticException | DateTimeException e) {
+            throw new InvalidPageRequestException("PAGE-001", "Page cursor is invalid");
+        }
+    }
+
+    /**
+     * @param cursor cursor of a score ordered listing sent by the client, may be null for the first page
+     * @return decoded cursor or null for the first page
+     * @throws InvalidPageRequestException if the cursor is malformed
+     */
+    public static ScoreCursor scoreCursor(final String cursor) throws InvalidPageRequestException {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            return ScoreCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("PAGE-001", "Page cursor is invalid");
+        }
+    }
+
+    /**
+     * @param sort order of an answer listing sent by the client, may be null for the default
+     * @return requested order, highest score first by default
+     * @throws InvalidPageRequestException if the order is unknown
+     */
+    public static AnswerSortType answerSort(final String sort) throws InvalidPageRequestException {
+        if (sort == null || sort.isEmpty()) {
+            return AnswerSortType.score;
+        }
+        try {
+            return AnswerSortType.valueOf(sort);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidPageRequestException("PAGE-004", "Sort order must be score or newest");
+        }
+    }
+
+    /**
+     * Builds a page from rows fetched with a limit of pageSize + 1, the extra row only tells that another page exists.
+     *
+     * @param rows     fetched rows
+     * @param offset   offset the rows were fetched from
+     * @param pageSize requested page size
+     * @return page of at most pageSize rows
+     */
+    public static <T> OffsetPage<T> page(final List<T> rows, final int offset, final int pageSize) {
+        if (rows.size() <= pageSize) {
+            return new OffsetPage<>(rows, null);
+        }
+        return new OffsetPage<>(rows.subList(0, pageSize), offset + pageSize);
+    }
+
+    /**
+     * Builds a page from rows fetched with a limit of pageSize + 1, the extra row only tells that another page exists.
+     *
+     * @param rows     fetched rows
+     * @param pageSize requested page size
+     * @param cursorOf cursor pointing at a row
+     * @return page of at most pageSize rows
+     */
+    public static <T> KeysetPage<T> page(final List<T> rows, final int pageSize, final Function<T, ? extends PageCursor> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new KeysetPage<>(rows, null);
+        }
+        final List<T> items = rows.subList(0, pageSize);
+        return new KeysetPage<>(items, cursorOf.apply(items.get(pageSize - 1)));
+    }
+}
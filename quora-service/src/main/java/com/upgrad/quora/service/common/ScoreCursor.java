@@ -0,0 +1,57 @@
+package com.upgrad.quora.service.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a listing ordered by score descending and id descending, handed to clients as an opaque string.
+ * Scores keep changing while a client pages, so an item whose score changed meanwhile may be skipped or seen twice.
+ */
+public final class ScoreCursor implements PageCursor {
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    //tells score cursors from date cursors, so that a cursor of another listing is rejected
+    private static final String PREFIX = "s";
+
+    private final long score;
+    private final long id;
+
+    public ScoreCursor(final long score, final long id) {
+        this.score = score;
+        this.id = id;
+    }
+
+    public long getScore() {
+        return score;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return cursor as url safe string holding the score and the id
+     */
+    @Override
+    public String encode() {
+        return ENCODER.encodeToString((PREFIX + score + ":" + id).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * @param cursor cursor as returned by encode
+     * @return decoded cursor
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static ScoreCursor decode(final String cursor) {
+        final String decoded = new String(DECODER.decode(cursor), StandardCharsets.US_ASCII);
+        final int separator = decoded.indexOf(':');
+        if (!decoded.startsWith(PREFIX) || separator < 0) {
+            throw new IllegalArgumentException("Malformed cursor");
+        }
+        final long score = Long.parseLong(decoded.substring(PREFIX.length(), separator));
+        final long id = Long.parseLong(decoded.substring(separator + 1));
+        return new ScoreCursor(score, id);
+    }
+}
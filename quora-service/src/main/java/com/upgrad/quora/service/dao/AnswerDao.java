@@ -1,52 +1,312 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.cache.AnswerCache;
+import com.upgrad.quora.service.cache.AnswerListCache;
+import com.upgrad.quora.service.common.KeysetCursor;
+import com.upgrad.quora.service.common.ScoreCursor;
+import com.upgrad.quora.service.dto.AnswerSummary;
 import com.upgrad.quora.service.entity.Answer;
+import com.upgrad.quora.service.type.AnswerSortType;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Repository
 public class AnswerDao {
 
+    /**
+     * Upserts one vote per answer and user given as three parallel arrays, then moves the score of every answer
+     * by the sum of its votes which were added or changed; the previous votes are read from the same snapshot.
+     * Votes on answers or by users removed since the vote are skipped.
+     */
+    private static final String APPLY_VOTES = "WITH incoming AS ("
+            + " SELECT i.answer_id, i.user_id, i.vote FROM unnest(?::int[], ?::int[], ?::smallint[]) AS i(answer_id, user_id, vote)"
+            + " WHERE EXISTS (SELECT 1 FROM ANSWER a WHERE a.id = i.answer_id) AND EXISTS (SELECT 1 FROM USERS u WHERE u.id = i.user_id)),"
+            + " previous AS (SELECT v.answer_id, v.user_id, v.vote FROM ANSWER_VOTE v"
+            + " JOIN incoming i ON v.answer_id = i.answer_id AND v.user_id = i.user_id),"
+            + " upserted AS (INSERT INTO ANSWER_VOTE(answer_id, user_id, vote) SELECT answer_id, user_id, vote FROM incoming"
+            + " ON CONFLICT (answer_id, user_id) DO UPDATE SET vote = EXCLUDED.vote WHERE ANSWER_VOTE.vote <> EXCLUDED.vote"
+            + " RETURNING answer_id, user_id, vote),"
+            + " deltas AS (SELECT u.answer_id, sum(u.vote - coalesce(p.vote, 0)) AS delta FROM upserted u"
+            + " LEFT JOIN previous p ON p.answer_id = u.answer_id AND p.user_id = u.user_id GROUP BY u.answer_id)"
+            + " UPDATE ANSWER a SET score = a.score + d.delta FROM deltas d, QUESTION q"
+            + " WHERE a.id = d.answer_id AND d.delta <> 0 AND q.id = a.question_id RETURNING a.uuid, q.uuid";
+
+    private static final String EXPORT_ANSWERS = "exportAnswers";
+
     @PersistenceContext
     EntityManager entityManager;
 
+    @Autowired
+    JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    AnswerCache answerCache;
+
+    @Autowired
+    AnswerListCache answerListCache;
+
 
     public Answer createAnswer(Answer answer) {
         entityManager.persist(answer);
+        answerListCache.invalidate(answer.getQuestion().getUuid());
         return answer;
     }
 
+    /**
+     * method used for getting an answer, read through the answer cache.
+     * A cached answer is returned detached.
+     * The answer is fetched with its user and its question together with the question's user,
+     * ownership checks use the former and cache invalidation all of them.
+     *
+     * @param answerUuId uuid of the answer
+     * @return answer or null if there is none
+     */
     public Answer getAnswerForUuId(String answerUuId) {
+        final Answer cached = answerCache.get(answerUuId);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            return entityManager
+            final Answer answer = entityManager
                     .createNamedQuery("getAnswerForUuId", Answer.class)
+                    .setHint("javax.persistence.fetchgraph", entityManager.getEntityGraph(Answer.WITH_USERS_AND_QUESTION))
                     .setParameter("uuid", answerUuId)
                     .getSingleResult();
+            answerCache.put(answer);
+            return answer;
         } catch (NoResultException e) {
             return null;
         }
     }
 
-    public Answer editAnswer(Answer answer) {
-        entityManager.persist(answer);
-        return answer;
+    /**
+     * method used for checking whether an answer exists.
+     *
+     * @param answerUuId uuid of the answer
+     * @return true if the answer exists
+     */
+    public boolean answerExists(final String answerUuId) {
+        return entityManager.createNamedQuery("countAnswersByUuid", Long.class)
+                .setParameter("uuid", answerUuId)
+                .getSingleResult() > 0;
     }
 
-    public void deleteAnswer(Answer answer) {
-        entityManager.remove(answer);
+    /**
+     * method used for editing an answer in a single statement, provided the user owns it.
+     * The statement returns the uuid of the question, whose cached answer listing is dropped.
+     * Must be called within a transaction.
+     *
+     * @param answerUuId uuid of the answer
+     * @param ownerId    id of the user who must own the answer
+     * @param answer     new answer text
+     * @param date       date of the edit
+     * @return true if the answer was edited, false if it does not exist or is owned by another user
+     */
+    public boolean editAnswer(final String answerUuId, final Integer ownerId, final String answer, final ZonedDateTime date) {
+        final List<?> questionUuIds = entityManager.createNamedQuery("editAnswerOfOwner")
+                .setParameter("answer", answer)
+                .setParameter("date", date)
+                .setParameter("uuid", answerUuId)
+                .setParameter("userId", ownerId)
+                .getResultList();
+        answerCache.invalidate(answerUuId);
+        for (Object questionUuId : questionUuIds) {
+            answerListCache.invalidate((String) questionUuId);
+        }
+        return !questionUuIds.isEmpty();
     }
 
-    public List<Answer> getAnswersForQuestion(String questionUuId) {
-        try {
-            return entityManager.createNamedQuery("getAnsersForQuestion", Answer.class)
-                    .setParameter("uuid", questionUuId)
-                    .getResultList();
-        } catch (NoResultException e) {
-            return null;
+    /**
+     * method used for deleting an answer in a single statement, provided the user owns it.
+     * The statement returns the uuid and id of the question, whose cached answer listing is dropped.
+     * Must be called within a transaction.
+     *
+     * @param answerUuId uuid of the answer
+     * @param ownerId    id of the user who must own the answer, null to delete it whoever owns it
+     * @return id of the question of the deleted answer, null if it does not exist or is owned by another user
+     */
+    public Integer deleteAnswer(final String answerUuId, final Integer ownerId) {
+        final Query query = ownerId == null
+                ? entityManager.createNamedQuery("deleteAnswerByUuid")
+                : entityManager.createNamedQuery("deleteAnswerOfOwner").setParameter("userId", ownerId);
+        final List<?> rows = query.setParameter("uuid", answerUuId).getResultList();
+        answerCache.invalidate(answerUuId);
+        Integer questionId = null;
+        for (Object row : rows) {
+            final Object[] question = (Object[]) row;
+            answerListCache.invalidate((String) question[0]);
+            questionId = ((Number) question[1]).intValue();
         }
+        return questionId;
+    }
+
+    /**
+     * method used for writing a batch of votes and moving the scores of the answers accordingly, in a single statement.
+     * The arrays hold one vote per answer and user; the cached answers and the score ordered answer listings whose
+     * order changed are dropped, while the scores shown by the cached newest first listings are let go stale until they expire.
+     * Must be called within a transaction.
+     *
+     * @param answerIds ids of the answers voted on
+     * @param userIds   ids of the voting users
+     * @param votes     1 for an upvote, -1 for a downvote
+     * @return number of answers whose score changed
+     */
+    public int applyVotes(final Integer[] answerIds, final Integer[] userIds, final Short[] votes) {
+        final List<String[]> rescored = jdbcTemplate.execute((ConnectionCallback<List<String[]>>) connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(APPLY_VOTES)) {
+                statement.setArray(1, connection.createArrayOf("int4", answerIds));
+                statement.setArray(2, connection.createArrayOf("int4", userIds));
+                statement.setArray(3, connection.createArrayOf("int2", votes));
+                final List<String[]> uuids = new ArrayList<>();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        uuids.add(new String[]{resultSet.getString(1), resultSet.getString(2)});
+                    }
+                }
+                return uuids;
+            }
+        });
+        for (String[] uuids : rescored) {
+            answerCache.invalidate(uuids[0]);
+            answerListCache.invalidate(uuids[1], AnswerSortType.score);
+        }
+        return rescored.size();
+    }
+
+    /**
+     * method used for removing every vote of a user and taking them back from the scores of the answers.
+     * Must be called within a transaction.
+     *
+     * @param userId id of the user
+     * @return number of answers whose score changed
+     */
+    public int removeVotesOfUser(final Integer userId) {
+        final int removed = jdbcTemplate.update("WITH removed AS (DELETE FROM ANSWER_VOTE WHERE user_id = ? RETURNING answer_id, vote)"
+                + " UPDATE ANSWER a SET score = a.score - r.vote FROM removed r WHERE a.id = r.answer_id", userId);
+        if (removed > 0) {
+            answerCache.invalidateIf(answer -> true);
+            answerListCache.invalidateAll();
+        }
+        return removed;
+    }
+
+    /**
+     * method used for counting the answers a user has given to the questions of other users.
+     *
+     * @param userId id of the user
+     * @return number of answers by question id
+     */
+    public Map<Integer, Long> getAnswerCountsOfUserOnOtherQuestions(final Integer userId) {
+        final List<Object[]> rows = entityManager.createNamedQuery("answerCountsOfUserOnOtherQuestions", Object[].class)
+                .setParameter("userId", userId)
+                .getResultList();
+        final Map<Integer, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put((Integer) row[0], (Long) row[1]);
+        }
+        return counts;
+    }
+
+    /**
+     * method used for deleting every answer written by a user or given to one of the user's questions, in bounded batches.
+     * Must be called within a transaction.
+     *
+     * @param userId    id of the user
+     * @param batchSize most answers deleted by one statement
+     * @return number of answers deleted
+     */
+    public long deleteAnswersOfUser(final Integer userId, final int batchSize) {
+        final long deleted = BatchDeleter.delete(entityManager,
+                entityManager.createNamedQuery("answerIdsOfUser").setParameter("userId", userId), "deleteAnswersByIds", batchSize)
+                + BatchDeleter.delete(entityManager,
+                entityManager.createNamedQuery("answerIdsOnQuestionsOfUser").setParameter("userId", userId), "deleteAnswersByIds", batchSize);
+        answerCache.invalidateIf(answer -> userId.equals(answer.getUser().getId())
+                || userId.equals(answer.getQuestion().getUser().getId()));
+        answerListCache.invalidateAll();
+        return deleted;
+    }
+
+    /**
+     * method used for deleting every answer of a question in bounded batches, provided the user owns the question.
+     * Must be called within a transaction.
+     *
+     * @param questionUuId uuid of the question
+     * @param ownerId      id of the user who must own the question, null whoever owns it
+     * @param batchSize    most answers deleted by one statement
+     * @return number of answers deleted
+     */
+    public long deleteAnswersOfQuestion(final String questionUuId, final Integer ownerId, final int batchSize) {
+        final Query idQuery = ownerId == null
+                ? entityManager.createNamedQuery("answerIdsOfQuestion")
+                : entityManager.createNamedQuery("answerIdsOfQuestionOfOwner").setParameter("userId", ownerId);
+        final long deleted = BatchDeleter.delete(entityManager, idQuery.setParameter("uuid", questionUuId), "deleteAnswersByIds", batchSize);
+        answerCache.invalidateIf(answer -> questionUuId.equals(answer.getQuestion().getUuid()));
+        answerListCache.invalidate(questionUuId);
+        return deleted;
+    }
+
+    /**
+     * method used for streaming every answer with its user and the uuid of its question through a forward only cursor.
+     * Must be called within a transaction.
+     *
+     * @param fetchSize number of answers fetched per round trip
+     * @param consumer  called with every answer, ordered by id
+     * @return number of answers read
+     */
+    public long scrollAllAnswers(final int fetchSize, final Consumer<Answer> consumer) {
+        return EntityScroller.scroll(entityManager, EXPORT_ANSWERS, Answer.class, fetchSize, consumer);
+    }
+
+    /**
+     * method used for getting a page of the answers of a question, highest score first, in a single query.
+     * The question is outer joined with the page of its answers read off the question and score index, hence
+     * no row means the question does not exist, while a question without answers on the page gives one row
+     * without answer.
+     *
+     * @param questionUuId uuid of the question
+     * @param after        cursor of the last answer of the previous page, null for the first page
+     * @param maxResults   number of answers to fetch
+     * @return summaries of the answers following the cursor together with the question content
+     */
+    public List<AnswerSummary> getAnswersPageForQuestion(final String questionUuId, final ScoreCursor after, final int maxResults) {
+        final Query query = after == null
+                ? entityManager.createNamedQuery("getAnswersPageForQuestion")
+                : entityManager.createNamedQuery("getAnswersPageForQuestionAfter")
+                .setParameter("score", (int) after.getScore())
+                .setParameter("id", (int) after.getId());
+        return query.setParameter("uuid", questionUuId).setParameter("limit", maxResults).getResultList();
+    }
+
+    /**
+     * method used for getting a page of the answers of a question, most recent first, in a single query.
+     * Works like getAnswersPageForQuestion, reading the page off the question and date index.
+     *
+     * @param questionUuId uuid of the question
+     * @param after        cursor of the last answer of the previous page, null for the first page
+     * @param maxResults   number of answers to fetch
+     * @return summaries of the answers following the cursor together with the question content
+     */
+    public List<AnswerSummary> getNewestAnswersPageForQuestion(final String questionUuId, final KeysetCursor after, final int maxResults) {
+        final Query query = after == null
+                ? entityManager.createNamedQuery("getNewestAnswersPageForQuestion")
+                : entityManager.createNamedQuery("getNewestAnswersPageForQuestionAfter")
+                .setParameter("date", after.getDate())
+                .setParameter("id", (int) after.getId());
+        return query.setParameter("uuid", questionUuId).setParameter("limit", maxResults).getResultList();
     }
 }
\ No newline at end of file
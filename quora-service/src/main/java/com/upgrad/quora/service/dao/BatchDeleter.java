@@ -0,0 +1,37 @@
+package com.upgrad.quora.service.dao;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Deletes the rows selected by a query in bounded batches: ids are read batchSize at a time and deleted by id,
+ * so no single statement touches more than batchSize rows however many there are.
+ * Rows deleted by a batch are no longer selected by the next one, which ends the loop once none are left.
+ */
+final class BatchDeleter {
+
+    private BatchDeleter() {
+    }
+
+    /**
+     * Must be called within a transaction.
+     *
+     * @param entityManager entity manager bound to the current transaction
+     * @param idQuery       query selecting the ids of the rows to delete
+     * @param deleteByIds   name of the query deleting the rows with the ids given as parameter "ids"
+     * @param batchSize     most rows deleted by one statement
+     * @return number of rows deleted
+     */
+    static long delete(final EntityManager entityManager, final Query idQuery, final String deleteByIds, final int batchSize) {
+        idQuery.setMaxResults(batchSize);
+        long deleted = 0;
+        List<?> ids = idQuery.getResultList();
+        while (!ids.isEmpty()) {
+            deleted += entityManager.createNamedQuery(deleteByIds).setParameter("ids", ids).executeUpdate();
+            ids = ids.size() < batchSize ? Collections.emptyList() : idQuery.getResultList();
+        }
+        return deleted;
+    }
+}
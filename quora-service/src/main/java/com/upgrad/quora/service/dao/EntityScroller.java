@@ -0,0 +1,47 @@
+package com.upgrad.quora.service.dao;
+
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.util.function.Consumer;
+
+/**
+ * Reads the result of a named query row by row through a forward only database cursor.
+ * Entities are loaded read only and the persistence context is cleared every fetchSize rows,
+ * so memory use does not grow with the size of the result.
+ */
+final class EntityScroller {
+
+    private EntityScroller() {
+    }
+
+    /**
+     * @param entityManager entity manager bound to the current transaction
+     * @param namedQuery    name of the query to read
+     * @param fetchSize     rows fetched per round trip and entities kept in the persistence context
+     * @param consumer      called with every entity in result order
+     * @return number of entities read
+     */
+    static <T> long scroll(final EntityManager entityManager, final String namedQuery, final Class<T> type,
+                           final int fetchSize, final Consumer<T> consumer) {
+        final Session session = entityManager.unwrap(Session.class);
+        long count = 0;
+        try (ScrollableResults results = session.getNamedQuery(namedQuery)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE)
+                .setFetchSize(fetchSize)
+                .scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                consumer.accept(type.cast(results.get(0)));
+                if (++count % fetchSize == 0) {
+                    session.clear();
+                }
+            }
+        }
+        session.clear();
+        return count;
+    }
+}
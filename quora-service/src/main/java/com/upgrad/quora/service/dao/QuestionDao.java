@@ -1,12 +1,26 @@
 package com.upgrad.quora.service.dao;
 
+import com.upgrad.quora.service.cache.AnswerCache;
+import com.upgrad.quora.service.cache.AnswerListCache;
+import com.upgrad.quora.service.cache.QuestionCache;
+import com.upgrad.quora.service.common.KeysetCursor;
+import com.upgrad.quora.service.dto.QuestionSearchHit;
+import com.upgrad.quora.service.dto.QuestionSummary;
 import com.upgrad.quora.service.entity.Question;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 
 /**
@@ -16,13 +30,39 @@ import java.util.List;
 public class QuestionDao {
 
     private static final String GETQUESTION_OF_SAME_OWNER = "getquestionOfSameOwner";
-    private static final String GET_ALL_QUESTIONS = "getAllQuestions";
-    private static final String GET_ALL_QUESTIONS_FOR_USER = "getAllQuestionsForUser";
+    private static final String GET_QUESTIONS_PAGE = "getQuestionsPage";
+    private static final String GET_QUESTIONS_PAGE_AFTER = "getQuestionsPageAfter";
+    private static final String GET_QUESTIONS_PAGE_FOR_USER = "getQuestionsPageForUser";
+    private static final String GET_QUESTIONS_PAGE_FOR_USER_AFTER = "getQuestionsPageForUserAfter";
     private static final String GET_QUESTION = "getQuestion";
+    private static final String COUNT_QUESTIONS_BY_UUID = "countQuestionsByUuid";
+    private static final String EDIT_QUESTION_OF_OWNER = "editQuestionOfOwner";
+    private static final String DELETE_QUESTION_OF_OWNER = "deleteQuestionOfOwner";
+    private static final String DELETE_QUESTION_BY_UUID = "deleteQuestionByUuid";
+    private static final String QUESTION_IDS_OF_USER = "questionIdsOfUser";
+    private static final String DELETE_QUESTIONS_BY_IDS = "deleteQuestionsByIds";
+    private static final String EXPORT_QUESTIONS = "exportQuestions";
+    private static final String SEARCH_QUESTIONS = "searchQuestions";
+    private static final String FETCH_GRAPH = "javax.persistence.fetchgraph";
 
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QuestionCache questionCache;
+
+    @Autowired
+    private AnswerCache answerCache;
+
+    @Autowired
+    private AnswerListCache answerListCache;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
 
     /**
      * method used for creating question instance in database.
@@ -36,70 +76,228 @@ public class QuestionDao {
     }
 
     /**
-     * method used for getting all questions for a specific users uuid.
+     * method used for creating many questions in database.
+     * Ids come from the pooled question sequence, hence the inserts are sent as JDBC batches.
+     * The persistence context is flushed and cleared after every batch, so it never holds more than one batch.
+     * Must be called within a transaction.
      *
-     * @param uuId authorized user uuid
-     * @return List of questions pertaining to the user
+     * @param questions question objects to be stored
+     * @return created question objects, detached
      */
-    public List<Question> getAllQuestionsForUser(String uuId) {
-        try {
-            return entityManager
-                    .createNamedQuery(GET_ALL_QUESTIONS_FOR_USER)
-                    .setParameter("uuid", uuId)
-                    .getResultList();
-        } catch (NoResultException e) {
-            return null;
+    public List<Question> createQuestions(final List<Question> questions) {
+        int pending = 0;
+        for (Question question : questions) {
+            entityManager.persist(question);
+            if (++pending == batchSize) {
+                entityManager.flush();
+                entityManager.clear();
+                pending = 0;
+            }
         }
+        entityManager.flush();
+        entityManager.clear();
+        return questions;
     }
 
     /**
-     * method used for getting all questions.
+     * method used for getting a page of the questions of a user, newest first.
      *
-     * @return list of all questions
+     * @param userId     id of the user
+     * @param after      cursor of the last question of the previous page, null for the first page
+     * @param maxResults number of questions to fetch
+     * @return summaries of the questions following the cursor
      */
-    public List<Question> getAllQuestions() {
-        try {
-            return entityManager
-                    .createNamedQuery(GET_ALL_QUESTIONS)
-                    .getResultList();
-        } catch (NoResultException e) {
-            return null;
-        }
+    public List<QuestionSummary> getQuestionsPageForUser(final Integer userId, final KeysetCursor after, final int maxResults) {
+        final TypedQuery<QuestionSummary> query = after == null
+                ? entityManager.createNamedQuery(GET_QUESTIONS_PAGE_FOR_USER, QuestionSummary.class)
+                : withCursor(entityManager.createNamedQuery(GET_QUESTIONS_PAGE_FOR_USER_AFTER, QuestionSummary.class), after);
+        return query.setParameter("userId", userId).setMaxResults(maxResults).getResultList();
+    }
+
+    /**
+     * method used for getting a page of all questions, newest first.
+     *
+     * @param after      cursor of the last question of the previous page, null for the first page
+     * @param maxResults number of questions to fetch
+     * @return summaries of the questions following the cursor
+     */
+    public List<QuestionSummary> getQuestionsPage(final KeysetCursor after, final int maxResults) {
+        final TypedQuery<QuestionSummary> query = after == null
+                ? entityManager.createNamedQuery(GET_QUESTIONS_PAGE, QuestionSummary.class)
+                : withCursor(entityManager.createNamedQuery(GET_QUESTIONS_PAGE_AFTER, QuestionSummary.class), after);
+        return query.setMaxResults(maxResults).getResultList();
+    }
+
+    private static TypedQuery<QuestionSummary> withCursor(final TypedQuery<QuestionSummary> query, final KeysetCursor after) {
+        return query.setParameter("date", after.getDate()).setParameter("id", (int) after.getId());
+    }
+
+    /**
+     * method used for full-text searching question content, best matches first.
+     * The query is served by the GIN index on the english tsvector of the content.
+     *
+     * @param query      words to search for
+     * @param offset     number of matches to skip
+     * @param maxResults number of matches to fetch
+     * @return matching questions with their rank
+     */
+    @SuppressWarnings("unchecked")
+    public List<QuestionSearchHit> searchQuestions(final String query, final int offset, final int maxResults) {
+        return entityManager.createNamedQuery(SEARCH_QUESTIONS)
+                .setParameter("query", query)
+                .setFirstResult(offset)
+                .setMaxResults(maxResults)
+                .getResultList();
+    }
+
+    /**
+     * method used for streaming every question with its user through a forward only cursor.
+     * Must be called within a transaction.
+     *
+     * @param fetchSize number of questions fetched per round trip
+     * @param consumer  called with every question, ordered by id
+     * @return number of questions read
+     */
+    public long scrollAllQuestions(final int fetchSize, final Consumer<Question> consumer) {
+        return EntityScroller.scroll(entityManager, EXPORT_QUESTIONS, Question.class, fetchSize, consumer);
     }
 
     /**
-     * method used for getting question for the same owner
+     * method used for getting question for the same owner.
+     * Questions are read through the question cache, a cached question is returned detached.
+     * The user is fetched with the question, ownership checks and cached copies rely on it.
      *
      * @param questionUuId
      * @return Question object
      */
     public Question getQuestion(String questionUuId) {
+        final Question cached = questionCache.get(questionUuId);
+        if (cached != null) {
+            return cached;
+        }
         try {
-            return entityManager
+            final Question question = entityManager
                     .createNamedQuery(GET_QUESTION, Question.class)
+                    .setHint(FETCH_GRAPH, entityManager.getEntityGraph(Question.WITH_USER))
                     .setParameter("uuid", questionUuId)
                     .getSingleResult();
+            questionCache.put(question);
+            return question;
         } catch (NoResultException e) {
             return null;
         }
     }
 
     /**
-     * method used for editing the question details in database.
+     * method used for checking whether a question exists.
      *
-     * @param question question object to be updated
+     * @param questionUuId uuid of the question
+     * @return true if the question exists
      */
-    public Question editQuestion(Question question) {
-        entityManager.persist(question);
-        return question;
+    public boolean questionExists(final String questionUuId) {
+        return entityManager.createNamedQuery(COUNT_QUESTIONS_BY_UUID, Long.class)
+                .setParameter("uuid", questionUuId)
+                .getSingleResult() > 0;
+    }
+
+    /**
+     * method used for editing the content of a question in a single statement, provided the user owns it.
+     * Must be called within a transaction.
+     *
+     * @param questionUuId uuid of the question
+     * @param ownerId      id of the user who must own the question
+     * @param content      new content
+     * @return true if the question was edited, false if it does not exist or is owned by another user
+     */
+    public boolean editQuestion(final String questionUuId, final Integer ownerId, final String content) {
+        final int edited = entityManager.createNamedQuery(EDIT_QUESTION_OF_OWNER)
+                .setParameter("content", content)
+                .setParameter("uuid", questionUuId)
+                .setParameter("userId", ownerId)
+                .executeUpdate();
+        //the answer listing shows the question content, cached answers do not hold it
+        questionCache.invalidate(questionUuId);
+        answerListCache.invalidate(questionUuId);
+        return edited > 0;
+    }
+
+    /**
+     * method used for deleting a question in a single statement, provided the user owns it.
+     * The answers of the question must have been deleted before, see AnswerDao.deleteAnswersOfQuestion,
+     * which also drops the cached answers and answer listing of the question.
+     * Must be called within a transaction.
+     *
+     * @param questionUuId uuid of the question
+     * @param ownerId      id of the user who must own the question, null to delete it whoever owns it
+     * @return true if the question was deleted, false if it does not exist or is owned by another user
+     */
+    public boolean deleteQuestion(final String questionUuId, final Integer ownerId) {
+        final Query query = ownerId == null
+                ? entityManager.createNamedQuery(DELETE_QUESTION_BY_UUID)
+                : entityManager.createNamedQuery(DELETE_QUESTION_OF_OWNER).setParameter("userId", ownerId);
+        final int deleted = query.setParameter("uuid", questionUuId).executeUpdate();
+        questionCache.invalidate(questionUuId);
+        return deleted > 0;
+    }
+
+    /**
+     * method used for deleting every question of a user in bounded batches.
+     * The answers of the questions must have been deleted before, see AnswerDao.deleteAnswersOfUser.
+     * Must be called within a transaction.
+     *
+     * @param userId    id of the user
+     * @param batchSize most questions deleted by one statement
+     * @return number of questions deleted
+     */
+    public long deleteQuestionsOfUser(final Integer userId, final int batchSize) {
+        final long deleted = BatchDeleter.delete(entityManager,
+                entityManager.createNamedQuery(QUESTION_IDS_OF_USER).setParameter("userId", userId), DELETE_QUESTIONS_BY_IDS, batchSize);
+        questionCache.invalidateIf(question -> userId.equals(question.getUser().getId()));
+        answerCache.invalidateIf(answer -> userId.equals(answer.getQuestion().getUser().getId()));
+        answerListCache.invalidateAll();
+        return deleted;
+    }
+
+    /**
+     * method used for adding to the answer counts of questions as one JDBC batch.
+     * Deltas of questions which no longer exist are ignored.
+     * Must be called within a transaction.
+     *
+     * @param deltas change of the answer count by question id, in the order the rows are to be locked
+     */
+    public void addAnswerCounts(final Map<Integer, Long> deltas) {
+        final List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        for (Map.Entry<Integer, Long> delta : deltas.entrySet()) {
+            batchArgs.add(new Object[]{delta.getValue(), delta.getKey()});
+        }
+        jdbcTemplate.batchUpdate("UPDATE QUESTION SET ANSWER_COUNT = ANSWER_COUNT + ? WHERE ID = ?", batchArgs);
+    }
+
+    /**
+     * method used for walking the questions in id order, a batch at a time.
+     *
+     * @param afterId   id the batch starts after
+     * @param batchSize number of questions in the batch
+     * @return highest id of the batch, null if there are no questions after the given id
+     */
+    public Integer getQuestionIdBoundary(final int afterId, final int batchSize) {
+        return jdbcTemplate.queryForObject("SELECT max(id) FROM (SELECT id FROM QUESTION WHERE id > ? ORDER BY id LIMIT ?) batch",
+                Integer.class, afterId, batchSize);
     }
 
     /**
-     * method used for deleting the question
+     * method used for setting the answer count of a range of questions to their actual number of answers.
+     * Only rows whose count is off are written.
+     * Must be called within a transaction.
      *
-     * @param question question object to be deleted
+     * @param afterId id the range starts after
+     * @param upToId  last id of the range
+     * @return number of questions whose count was corrected
      */
-    public void deleteQuestion(Question question) {
-        entityManager.remove(question);
+    public int recountAnswers(final int afterId, final int upToId) {
+        return jdbcTemplate.update("UPDATE QUESTION q SET ANSWER_COUNT = c.actual"
+                + " FROM (SELECT q2.id, (SELECT count(*) FROM ANSWER a WHERE a.question_id = q2.id) actual"
+                + " FROM QUESTION q2 WHERE q2.id > ? AND q2.id <= ?) c"
+                + " WHERE q.id = c.id AND q.ANSWER_COUNT <> c.actual", afterId, upToId);
     }
 }
@@ -1,12 +1,21 @@
 package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Repository;
 import com.upgrad.quora.service.entity.UserEntity;
 
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Repository
 public class UserDao {
@@ -14,6 +23,9 @@ public class UserDao {
     @PersistenceContext
     private EntityManager entityManager;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
     public UserEntity createUser(UserEntity userEntity) {
         entityManager.persist(userEntity);
         return userEntity;
@@ -51,23 +63,155 @@ public class UserDao {
         }
     }
 
-    public UserAuthEntity getAuthByAccessToken(String accessToken){
+    /**
+     * Resolves the session of an access token and its user, including the role, in a single fetch-join query.
+     */
+    public UserAuthEntity getAuthWithUserByAccessToken(String accessToken){
         try {
-            return entityManager.createNamedQuery("authByAccessToken", UserAuthEntity.class).setParameter("accessToken", accessToken)
+            return entityManager.createNamedQuery("authWithUserByAccessToken", UserAuthEntity.class).setParameter("accessToken", accessToken)
                     .getSingleResult();
         }catch(Exception nre){
             return null;
         }
     }
 
-    public UserAuthEntity signOut(UserAuthEntity userAuthEntity) {
-        entityManager.merge(userAuthEntity);
-        return userAuthEntity;
+    /**
+     * Resolves the session a refresh token was issued to, together with its user.
+     *
+     * @param refreshTokenHash SHA-256 hash of the refresh token
+     */
+    public UserAuthEntity getAuthWithUserByRefreshToken(final String refreshTokenHash) {
+        try {
+            return entityManager.createNamedQuery("authWithUserByRefreshToken", UserAuthEntity.class).setParameter("refreshToken", refreshTokenHash)
+                    .getSingleResult();
+        } catch (NoResultException nre) {
+            return null;
+        }
+    }
+
+    /**
+     * Signs out a session unless it already is signed out.
+     *
+     * @return true if this call signed the session out
+     */
+    public boolean signOutActiveSession(final long id, final ZonedDateTime logoutAt) {
+        return entityManager.createNamedQuery("signOutActiveSession").setParameter("id", id)
+                .setParameter("logoutAt", logoutAt).executeUpdate() == 1;
+    }
+
+    public List<String> getAccessTokensSignedOutSince(final ZonedDateTime since, final ZonedDateTime now) {
+        return entityManager.createNamedQuery("accessTokensSignedOutSince", String.class).setParameter("since", since)
+                .setParameter("now", now).getResultList();
+    }
+
+    public List<Object[]> getAccessTokensAfterId(final long id, final int maxResults) {
+        return entityManager.createNamedQuery("accessTokensAfterId", Object[].class).setParameter("id", id)
+                .setMaxResults(maxResults).getResultList();
+    }
+
+    public List<String> getAccessTokensLoggedInSince(final ZonedDateTime since) {
+        return entityManager.createNamedQuery("accessTokensLoggedInSince", String.class).setParameter("since", since)
+                .getResultList();
+    }
+
+    /**
+     * Returns the ids of sessions which expired before the given time, and optionally of sessions signed out before
+     * the given time, oldest first.
+     */
+    public List<Long> getReapableSessionIds(final ZonedDateTime expiredBefore, final ZonedDateTime signedOutBefore, final int maxResults) {
+        final TypedQuery<Long> query;
+        if (signedOutBefore == null) {
+            query = entityManager.createNamedQuery("expiredSessionIds", Long.class);
+        } else {
+            query = entityManager.createNamedQuery("expiredOrSignedOutSessionIds", Long.class).setParameter("signedOutBefore", signedOutBefore);
+        }
+        return query.setParameter("expiredBefore", expiredBefore).setMaxResults(maxResults).getResultList();
+    }
+
+    public int deleteSessions(final List<Long> ids) {
+        return entityManager.createNamedQuery("deleteSessionsByIds").setParameter("ids", ids).executeUpdate();
+    }
+
+    /**
+     * Row count of the USER_AUTH table as estimated by the planner statistics, which avoids a full count scan.
+     */
+    public long getSessionCountEstimate() {
+        final Number estimate = (Number) entityManager
+                .createNativeQuery("select cast(reltuples as bigint) from pg_class where relname = 'user_auth'")
+                .getSingleResult();
+        return estimate.longValue();
+    }
+
+    /**
+     * Writes the sign out time of many sessions as one JDBC batch. Sessions which are already signed out keep their time.
+     *
+     * @param logoutTimes sign out time by session id
+     */
+    public void signOutSessions(final Map<Long, ZonedDateTime> logoutTimes) {
+        final List<Object[]> batchArgs = new ArrayList<>(logoutTimes.size());
+        for (Map.Entry<Long, ZonedDateTime> logoutTime : logoutTimes.entrySet()) {
+            batchArgs.add(new Object[]{Timestamp.from(logoutTime.getValue().toInstant()), logoutTime.getKey()});
+        }
+        jdbcTemplate.batchUpdate("UPDATE USER_AUTH SET LOGOUT_AT = ? WHERE ID = ? AND LOGOUT_AT IS NULL", batchArgs);
+    }
+
+    /**
+     * method used for deleting every session of a user in bounded batches.
+     * Must be called within a transaction.
+     *
+     * @param userId    id of the user
+     * @param batchSize most sessions deleted by one statement
+     * @return number of sessions deleted
+     */
+    public long deleteSessionsOfUser(final Integer userId, final int batchSize) {
+        return BatchDeleter.delete(entityManager,
+                entityManager.createNamedQuery("sessionIdsOfUser").setParameter("userId", userId), "deleteSessionsByIds", batchSize);
+    }
+
+    /**
+     * method used for deleting a user.
+     * The sessions, questions and answers of the user must have been deleted before.
+     * Must be called within a transaction.
+     *
+     * @param userId id of the user
+     * @return true if the user was deleted
+     */
+    public boolean deleteUser(final Integer userId) {
+        return entityManager.createNamedQuery("deleteUserById").setParameter("id", userId).executeUpdate() > 0;
+    }
+
+    /**
+     * method used for recording that the server signed tokens of a deleted user are revoked.
+     * Must be called within the transaction deleting the user.
+     *
+     * @param userUuid  uuid of the deleted user
+     * @param revokedAt time of the removal
+     * @param expiresAt time after which none of the tokens of the user can be valid
+     */
+    public void revokeUser(final String userUuid, final ZonedDateTime revokedAt, final ZonedDateTime expiresAt) {
+        jdbcTemplate.update("INSERT INTO REVOKED_USER(UUID, REVOKED_AT, EXPIRES_AT) VALUES (?, ?, ?)"
+                        + " ON CONFLICT (UUID) DO UPDATE SET REVOKED_AT = EXCLUDED.REVOKED_AT, EXPIRES_AT = EXCLUDED.EXPIRES_AT",
+                userUuid, Timestamp.from(revokedAt.toInstant()), Timestamp.from(expiresAt.toInstant()));
+    }
+
+    /**
+     * @return epoch millis after which the tokens can no longer be valid, by uuid of the users revoked in the window
+     */
+    public Map<String, Long> getUsersRevokedSince(final ZonedDateTime since, final ZonedDateTime now) {
+        final Map<String, Long> revokedUsers = new HashMap<>();
+        jdbcTemplate.query("SELECT UUID, EXPIRES_AT FROM REVOKED_USER WHERE REVOKED_AT >= ? AND REVOKED_AT <= ? AND EXPIRES_AT > ?",
+                rs -> {
+                    revokedUsers.put(rs.getString(1), rs.getTimestamp(2).getTime());
+                },
+                Timestamp.from(since.toInstant()), Timestamp.from(now.toInstant()), Timestamp.from(now.toInstant()));
+        return revokedUsers;
     }
 
-    public void deleteUser(UserEntity userEntity,UserAuthEntity userAuthEntity){
-        entityManager.remove(userEntity);
-        entityManager.remove(userAuthEntity);
+    /**
+     * @return number of user revocations removed because every token they cover has expired
+     */
+    public int deleteExpiredUserRevocations(final ZonedDateTime now) {
+        return jdbcTemplate.update("DELETE FROM REVOKED_USER WHERE EXPIRES_AT <= ?", Timestamp.from(now.toInstant()));
     }
 
     public void updateUser(final UserEntity updatedUserEntity) {
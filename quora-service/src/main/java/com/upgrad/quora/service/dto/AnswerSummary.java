@@ -0,0 +1,62 @@
+package com.upgrad.quora.service.dto;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Read only view of an answer together with the content of its question, as shown in answer listings.
+ * Built directly by projection queries, hence never tracked by the persistence context.
+ * A question without answers on the requested page is returned as a single row whose answer fields are all null.
+ */
+public class AnswerSummary {
+
+    private final Integer id;
+    private final String uuid;
+    private final String answer;
+    private final Integer score;
+    private final ZonedDateTime date;
+    private final String questionContent;
+
+    public AnswerSummary(final Integer id, final String uuid, final String answer, final Integer score, final ZonedDateTime date,
+                         final String questionContent) {
+        this.id = id;
+        this.uuid = uuid;
+        this.answer = answer;
+        this.score = score;
+        this.date = date;
+        this.questionContent = questionContent;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getAnswer() {
+        return answer;
+    }
+
+    /**
+     * @return upvotes minus downvotes, null on the row standing for a question without answers
+     */
+    public Integer getScore() {
+        return score;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    public String getQuestionContent() {
+        return questionContent;
+    }
+
+    /**
+     * @return false for the row standing for a question without answers
+     */
+    public boolean isAnswer() {
+        return id != null;
+    }
+}
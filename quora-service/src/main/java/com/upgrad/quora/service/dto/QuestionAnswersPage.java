@@ -0,0 +1,25 @@
+package com.upgrad.quora.service.dto;
+
+import com.upgrad.quora.service.common.KeysetPage;
+
+/**
+ * Content of a question together with one page of its answers.
+ */
+public class QuestionAnswersPage {
+
+    private final String questionContent;
+    private final KeysetPage<AnswerSummary> answers;
+
+    public QuestionAnswersPage(final String questionContent, final KeysetPage<AnswerSummary> answers) {
+        this.questionContent = questionContent;
+        this.answers = answers;
+    }
+
+    public String getQuestionContent() {
+        return questionContent;
+    }
+
+    public KeysetPage<AnswerSummary> getAnswers() {
+        return answers;
+    }
+}
@@ -0,0 +1,55 @@
+package com.upgrad.quora.service.dto;
+
+import com.upgrad.quora.service.entity.Question;
+
+/**
+ * Outcome of creating one question of a bulk request, either the created question or the reason it was rejected.
+ */
+public class QuestionCreateResult {
+
+    private final int index;
+    private final Question question;
+    private final String errorCode;
+    private final String errorMessage;
+
+    private QuestionCreateResult(final int index, final Question question, final String errorCode, final String errorMessage) {
+        this.index = index;
+        this.question = question;
+        this.errorCode = errorCode;
+        this.errorMessage = errorMessage;
+    }
+
+    public static QuestionCreateResult created(final int index, final Question question) {
+        return new QuestionCreateResult(index, question, null, null);
+    }
+
+    public static QuestionCreateResult rejected(final int index, final String errorCode, final String errorMessage) {
+        return new QuestionCreateResult(index, null, errorCode, errorMessage);
+    }
+
+    /**
+     * @return position of the question in the request
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public boolean isCreated() {
+        return question != null;
+    }
+
+    /**
+     * @return created question, null if rejected
+     */
+    public Question getQuestion() {
+        return question;
+    }
+
+    public String getErrorCode() {
+        return errorCode;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+}
@@ -0,0 +1,29 @@
+package com.upgrad.quora.service.dto;
+
+/**
+ * Question matched by a full-text search together with its relevance.
+ */
+public class QuestionSearchHit {
+
+    private final String uuid;
+    private final String content;
+    private final double rank;
+
+    public QuestionSearchHit(final String uuid, final String content, final Double rank) {
+        this.uuid = uuid;
+        this.content = content;
+        this.rank = rank;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public double getRank() {
+        return rank;
+    }
+}
@@ -0,0 +1,47 @@
+package com.upgrad.quora.service.dto;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Read only view of a question as shown in question listings.
+ * Built directly by projection queries, hence never tracked by the persistence context.
+ */
+public class QuestionSummary {
+
+    private final Integer id;
+    private final String uuid;
+    private final String content;
+    private final ZonedDateTime date;
+    private final int answerCount;
+
+    public QuestionSummary(final Integer id, final String uuid, final String content, final ZonedDateTime date, final int answerCount) {
+        this.id = id;
+        this.uuid = uuid;
+        this.content = content;
+        this.date = date;
+        this.answerCount = answerCount;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public ZonedDateTime getDate() {
+        return date;
+    }
+
+    /**
+     * @return number of answers as last written by AnswerCountBuffer, which may lag behind by one flush interval
+     */
+    public int getAnswerCount() {
+        return answerCount;
+    }
+}
@@ -1,5 +1,7 @@
 package com.upgrad.quora.service.entity;
 
+import com.upgrad.quora.service.dto.AnswerSummary;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -14,11 +16,62 @@ import java.time.ZonedDateTime;
 @NamedQueries(
         {
                 @NamedQuery(name = "getAnswerForUuId", query = "select ans from Answer ans where uuid=:uuid"),
-                @NamedQuery(name = "getAnsersForQuestion", query = "select ans from Answer ans where ans.question.uuid=:uuid")
+                @NamedQuery(name = "countAnswersByUuid", query = "select count(ans) from Answer ans where ans.uuid = :uuid"),
+                @NamedQuery(name = "answerCountsOfUserOnOtherQuestions", query = "select q.id, count(ans) from Answer ans join ans.question q"
+                        + " where ans.user.id = :userId and q.user.id <> :userId group by q.id"),
+                @NamedQuery(name = "answerIdsOfUser", query = "select ans.id from Answer ans where ans.user.id = :userId"),
+                @NamedQuery(name = "answerIdsOnQuestionsOfUser", query = "select ans.id from Answer ans join ans.question q where q.user.id = :userId"),
+                @NamedQuery(name = "answerIdsOfQuestion", query = "select ans.id from Answer ans join ans.question q where q.uuid = :uuid"),
+                @NamedQuery(name = "answerIdsOfQuestionOfOwner", query = "select ans.id from Answer ans join ans.question q where q.uuid = :uuid and q.user.id = :userId"),
+                @NamedQuery(name = "deleteAnswersByIds", query = "delete from Answer ans where ans.id in :ids"),
+                @NamedQuery(name = "exportAnswers", query = "select ans from Answer ans join fetch ans.user join fetch ans.question order by ans.id")
         }
 )
+//edits and deletes return the uuid of the question of the answer, whose cached answer listing they invalidate;
+//deletes return its id as well, whose answer count they decrease
+@NamedNativeQueries(
+        {
+                @NamedNativeQuery(name = "editAnswerOfOwner", query = "update answer a set ans = :answer, date = :date from question q"
+                        + " where a.uuid = :uuid and a.user_id = :userId and q.id = a.question_id returning q.uuid"),
+                @NamedNativeQuery(name = "deleteAnswerOfOwner", query = "delete from answer a using question q"
+                        + " where a.uuid = :uuid and a.user_id = :userId and q.id = a.question_id returning q.uuid, q.id"),
+                @NamedNativeQuery(name = "deleteAnswerByUuid", query = "delete from answer a using question q"
+                        + " where a.uuid = :uuid and q.id = a.question_id returning q.uuid, q.id"),
+                //a page is read by a lateral subquery off ANSWER_QUESTION_SCORE_ID_IDX or ANSWER_QUESTION_DATE_ID_IDX in index order,
+                //stopping at the limit; a join ordered as a whole would sort every answer of the question instead.
+                //The uuid matches a single question, so the rows come out in the order of the subquery and need no sort;
+                //a question without answers on the page yields one row whose answer columns are null
+                @NamedNativeQuery(name = "getAnswersPageForQuestion", resultSetMapping = "answerSummary",
+                        query = "select a.id as id, a.uuid as uuid, a.ans as answer, a.score as score, a.date as date, q.content as question_content"
+                                + " from question q left join lateral (select id, uuid, ans, score, date from answer where question_id = q.id"
+                                + " order by score desc, id desc limit :limit) a on true where q.uuid = :uuid"),
+                @NamedNativeQuery(name = "getAnswersPageForQuestionAfter", resultSetMapping = "answerSummary",
+                        query = "select a.id as id, a.uuid as uuid, a.ans as answer, a.score as score, a.date as date, q.content as question_content"
+                                + " from question q left join lateral (select id, uuid, ans, score, date from answer where question_id = q.id"
+                                + " and (score, id) < (:score, :id) order by score desc, id desc limit :limit) a on true where q.uuid = :uuid"),
+                @NamedNativeQuery(name = "getNewestAnswersPageForQuestion", resultSetMapping = "answerSummary",
+                        query = "select a.id as id, a.uuid as uuid, a.ans as answer, a.score as score, a.date as date, q.content as question_content"
+                                + " from question q left join lateral (select id, uuid, ans, score, date from answer where question_id = q.id"
+                                + " order by date desc, id desc limit :limit) a on true where q.uuid = :uuid"),
+                @NamedNativeQuery(name = "getNewestAnswersPageForQuestionAfter", resultSetMapping = "answerSummary",
+                        query = "select a.id as id, a.uuid as uuid, a.ans as answer, a.score as score, a.date as date, q.content as question_content"
+                                + " from question q left join lateral (select id, uuid, ans, score, date from answer where question_id = q.id"
+                                + " and (date, id) < (:date, :id) order by date desc, id desc limit :limit) a on true where q.uuid = :uuid")
+        }
+)
+@SqlResultSetMapping(name = "answerSummary", classes = @ConstructorResult(targetClass = AnswerSummary.class, columns = {
+        @ColumnResult(name = "id"), @ColumnResult(name = "uuid"), @ColumnResult(name = "answer"), @ColumnResult(name = "score"),
+        @ColumnResult(name = "date", type = ZonedDateTime.class), @ColumnResult(name = "question_content")}))
+@NamedEntityGraph(name = Answer.WITH_USERS_AND_QUESTION,
+        attributeNodes = {@NamedAttributeNode("user"), @NamedAttributeNode(value = "question", subgraph = "questionUser")},
+        subgraphs = @NamedSubgraph(name = "questionUser", attributeNodes = @NamedAttributeNode("user")))
 public class Answer {
 
+    /**
+     * Graph fetching the author of the answer and the question together with its author.
+     */
+    public static final String WITH_USERS_AND_QUESTION = "answerWithUsersAndQuestion";
+
     @Id
     @Column(name = "id")
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -37,14 +90,18 @@ public class Answer {
     @Column(name = "date")
     private ZonedDateTime date;
 
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private UserEntity user;
 
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "question_id")
     private Question question;
 
+    //upvotes minus downvotes, maintained by AnswerVoteBuffer only, never written through the entity
+    @Column(name = "score", insertable = false, updatable = false)
+    private int score;
+
     /**
      * Accessore method for property id
      *
@@ -152,4 +209,22 @@ public class Answer {
     public void setQuestion(Question question) {
         this.question = question;
     }
+
+    /**
+     * Accessor method for property score
+     *
+     * @return upvotes minus downvotes
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * Modifier method for property score
+     *
+     * @param score upvotes minus downvotes
+     */
+    public void setScore(int score) {
+        this.score = score;
+    }
 }
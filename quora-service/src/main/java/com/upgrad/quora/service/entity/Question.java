@@ -2,9 +2,11 @@ package com.upgrad.quora.service.entity;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
-import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 
+import com.upgrad.quora.service.dto.QuestionSearchHit;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -16,16 +18,39 @@ import java.time.ZonedDateTime;
  */
 @Entity
 @Table(name = "question", schema = "public")
+@NamedNativeQuery(name = "searchQuestions", resultSetMapping = "questionSearchHit",
+        query = "select q.uuid as uuid, q.content as content, ts_rank(to_tsvector('english', q.content), tsq) as score"
+                + " from question q, plainto_tsquery('english', :query) tsq"
+                + " where to_tsvector('english', q.content) @@ tsq order by score desc, q.id desc")
+@SqlResultSetMapping(name = "questionSearchHit", classes = @ConstructorResult(targetClass = QuestionSearchHit.class, columns = {
+        @ColumnResult(name = "uuid"), @ColumnResult(name = "content"), @ColumnResult(name = "score", type = Double.class)}))
 @NamedQueries({
-        @NamedQuery(name = "getAllQuestionsForUser", query = "select qt from Question qt where qt.user.uuid=:uuid"),
-        @NamedQuery(name = "getAllQuestions", query = "select qt from Question qt"),
-        @NamedQuery(name = "getQuestion", query = "select qt from Question qt where qt.uuid=:uuid")
+        @NamedQuery(name = "getQuestionsPage", query = "select new com.upgrad.quora.service.dto.QuestionSummary(qt.id, qt.uuid, qt.content, qt.date, qt.answerCount) from Question qt order by qt.date desc, qt.id desc"),
+        @NamedQuery(name = "getQuestionsPageAfter", query = "select new com.upgrad.quora.service.dto.QuestionSummary(qt.id, qt.uuid, qt.content, qt.date, qt.answerCount) from Question qt where qt.date < :date or (qt.date = :date and qt.id < :id) order by qt.date desc, qt.id desc"),
+        @NamedQuery(name = "getQuestionsPageForUser", query = "select new com.upgrad.quora.service.dto.QuestionSummary(qt.id, qt.uuid, qt.content, qt.date, qt.answerCount) from Question qt where qt.user.id = :userId order by qt.date desc, qt.id desc"),
+        @NamedQuery(name = "getQuestionsPageForUserAfter", query = "select new com.upgrad.quora.service.dto.QuestionSummary(qt.id, qt.uuid, qt.content, qt.date, qt.answerCount) from Question qt where qt.user.id = :userId and (qt.date < :date or (qt.date = :date and qt.id < :id)) order by qt.date desc, qt.id desc"),
+        @NamedQuery(name = "getQuestion", query = "select qt from Question qt where qt.uuid=:uuid"),
+        @NamedQuery(name = "countQuestionsByUuid", query = "select count(qt) from Question qt where qt.uuid = :uuid"),
+        @NamedQuery(name = "editQuestionOfOwner", query = "update Question qt set qt.content = :content where qt.uuid = :uuid and qt.user.id = :userId"),
+        @NamedQuery(name = "deleteQuestionOfOwner", query = "delete from Question qt where qt.uuid = :uuid and qt.user.id = :userId"),
+        @NamedQuery(name = "deleteQuestionByUuid", query = "delete from Question qt where qt.uuid = :uuid"),
+        @NamedQuery(name = "questionIdsOfUser", query = "select qt.id from Question qt where qt.user.id = :userId"),
+        @NamedQuery(name = "deleteQuestionsByIds", query = "delete from Question qt where qt.id in :ids"),
+        @NamedQuery(name = "exportQuestions", query = "select qt from Question qt join fetch qt.user order by qt.id")
 }
 )
+@NamedEntityGraph(name = Question.WITH_USER, attributeNodes = @NamedAttributeNode("user"))
 public class Question {
+
+    /**
+     * Graph fetching the author of the question.
+     */
+    public static final String WITH_USER = "questionWithUser";
+
     @Id
     @Column(name = "id")
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "questionIdGenerator")
+    @SequenceGenerator(name = "questionIdGenerator", sequenceName = "question_id_seq", allocationSize = 50)
     private Integer id;
 
     @Column(name = "uuid")
@@ -41,10 +66,14 @@ public class Question {
     @Column(name = "date")
     private ZonedDateTime date;
 
-    @OneToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private UserEntity user;
 
+    //maintained by AnswerCountBuffer only, never written through the entity
+    @Column(name = "answer_count", insertable = false, updatable = false)
+    private int answerCount;
+
     public Integer getId() {
         return id;
     }
@@ -85,6 +114,14 @@ public class Question {
         this.user = user;
     }
 
+    public int getAnswerCount() {
+        return answerCount;
+    }
+
+    public void setAnswerCount(int answerCount) {
+        this.answerCount = answerCount;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return new EqualsBuilder().append(this, obj).isEquals();
@@ -97,6 +134,7 @@ public class Question {
 
     @Override
     public String toString() {
-        return ToStringBuilder.reflectionToString(this, ToStringStyle.MULTI_LINE_STYLE);
+        //the lazy user is left out, printing a detached question must not load it
+        return new ReflectionToStringBuilder(this, ToStringStyle.MULTI_LINE_STYLE).setExcludeFieldNames("user").toString();
     }
 }
@@ -14,7 +14,16 @@ import java.time.ZonedDateTime;
 @Table(name = "USER_AUTH")
 @NamedQueries(
         {
-                @NamedQuery(name = "authByAccessToken", query = "select u from UserAuthEntity u where u.accessToken = :accessToken")
+                @NamedQuery(name = "authWithUserByAccessToken", query = "select u from UserAuthEntity u join fetch u.user where u.accessToken = :accessToken"),
+                @NamedQuery(name = "accessTokensSignedOutSince", query = "select u.accessToken from UserAuthEntity u where u.logoutAt >= :since and u.expiresAt > :now"),
+                @NamedQuery(name = "accessTokensAfterId", query = "select u.id, u.accessToken from UserAuthEntity u where u.id > :id order by u.id"),
+                @NamedQuery(name = "accessTokensLoggedInSince", query = "select u.accessToken from UserAuthEntity u where u.loginAt >= :since"),
+                @NamedQuery(name = "expiredSessionIds", query = "select u.id from UserAuthEntity u where u.expiresAt < :expiredBefore and (u.refreshExpiresAt is null or u.refreshExpiresAt < :expiredBefore) order by u.id"),
+                @NamedQuery(name = "expiredOrSignedOutSessionIds", query = "select u.id from UserAuthEntity u where (u.expiresAt < :expiredBefore and (u.refreshExpiresAt is null or u.refreshExpiresAt < :expiredBefore)) or u.logoutAt < :signedOutBefore order by u.id"),
+                @NamedQuery(name = "deleteSessionsByIds", query = "delete from UserAuthEntity u where u.id in :ids"),
+                @NamedQuery(name = "sessionIdsOfUser", query = "select u.id from UserAuthEntity u where u.user.id = :userId"),
+                @NamedQuery(name = "authWithUserByRefreshToken", query = "select u from UserAuthEntity u join fetch u.user where u.refreshToken = :refreshToken"),
+                @NamedQuery(name = "signOutActiveSession", query = "update UserAuthEntity u set u.logoutAt = :logoutAt where u.id = :id and u.logoutAt is null")
         }
 )
 public class UserAuthEntity {
@@ -48,6 +57,18 @@ public class UserAuthEntity {
     @Size(max = 64)
     private String uuid;
 
+    //SHA-256 hash of the refresh token, the token itself is never stored
+    @Column(name = "REFRESH_TOKEN")
+    @Size(max = 64)
+    private String refreshToken;
+
+    @Column(name = "REFRESH_EXPIRES_AT")
+    private ZonedDateTime refreshExpiresAt;
+
+    //plain refresh token, only present on the session returned by sign in or refresh
+    @Transient
+    private String issuedRefreshToken;
+
     public void setUuid(String uuid) {
         this.uuid = uuid;
     }
@@ -103,6 +124,30 @@ public class UserAuthEntity {
     public void setLogoutAt(ZonedDateTime logoutAt) {
         this.logoutAt = logoutAt;
     }
+    public String getRefreshToken() {
+        return refreshToken;
+    }
+
+    public void setRefreshToken(String refreshToken) {
+        this.refreshToken = refreshToken;
+    }
+
+    public ZonedDateTime getRefreshExpiresAt() {
+        return refreshExpiresAt;
+    }
+
+    public void setRefreshExpiresAt(ZonedDateTime refreshExpiresAt) {
+        this.refreshExpiresAt = refreshExpiresAt;
+    }
+
+    public String getIssuedRefreshToken() {
+        return issuedRefreshToken;
+    }
+
+    public void setIssuedRefreshToken(String issuedRefreshToken) {
+        this.issuedRefreshToken = issuedRefreshToken;
+    }
+
     @Override
     public boolean equals(Object obj) {
         return new EqualsBuilder().append(this,obj).isEquals();
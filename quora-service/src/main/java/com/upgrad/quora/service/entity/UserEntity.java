@@ -15,7 +15,8 @@ import java.io.Serializable;
         {
                 @NamedQuery(name = "userByUuid", query = "select u from UserEntity u where u.uuid = :uuid"),
                 @NamedQuery(name = "userByEmail", query = "select u from UserEntity u where u.emailAddress =:email"),
-                @NamedQuery(name = "userByUserName", query = "select u from UserEntity u where u.userName =:userName")
+                @NamedQuery(name = "userByUserName", query = "select u from UserEntity u where u.userName =:userName"),
+                @NamedQuery(name = "deleteUserById", query = "delete from UserEntity u where u.id = :id")
         }
 )
 public class UserEntity implements Serializable {
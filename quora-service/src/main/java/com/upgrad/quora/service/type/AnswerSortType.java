@@ -0,0 +1,10 @@
+package com.upgrad.quora.service.type;
+
+/**
+ * Enum used for defining the order of the answer listing of a question.
+ * For highest score first we have score, which is the default, and for most recent first we have newest.
+ */
+public enum AnswerSortType {
+
+    score, newest
+}
@@ -0,0 +1,19 @@
+package com.upgrad.quora.service;
+
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+
+/**
+ * Service layer context of the tests running against PostgreSQL, see PostgresAvailable.
+ * It is ServiceConfiguration without the scheduling, so that no background job runs statements during a test.
+ */
+@SpringBootConfiguration
+@EnableAutoConfiguration
+@EntityScan("com.upgrad.quora.service.entity")
+@ComponentScan(basePackages = "com.upgrad.quora.service",
+        excludeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = ServiceConfiguration.class))
+public class DatabaseTestApplication {
+}
@@ -0,0 +1,46 @@
+package com.upgrad.quora.service;
+
+import org.junit.AssumptionViolatedException;
+import org.junit.rules.TestRule;
+import org.junit.runner.Description;
+import org.junit.runners.model.Statement;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+/**
+ * Class rule of the tests running against PostgreSQL. The tests are skipped when the database is not reachable,
+ * so that the build passes on machines without one. The database must have been migrated by quora-db,
+ * its location is taken from the spring.datasource system properties and defaults to the local quora database.
+ */
+public class PostgresAvailable implements TestRule {
+
+    private static final String URL = System.getProperty("spring.datasource.url", "jdbc:postgresql://localhost:5432/quora");
+    private static final String USERNAME = System.getProperty("spring.datasource.username", "postgres");
+    private static final String PASSWORD = System.getProperty("spring.datasource.password", "password");
+
+    /**
+     * @return a new connection to the test database, for tests and benchmarks working below the persistence context
+     * @throws SQLException if the database is not reachable
+     */
+    public static Connection connect() throws SQLException {
+        return DriverManager.getConnection(URL, USERNAME, PASSWORD);
+    }
+
+    @Override
+    public Statement apply(final Statement base, final Description description) {
+        return new Statement() {
+            @Override
+            public void evaluate() throws Throwable {
+                DriverManager.setLoginTimeout(2);
+                try (Connection connection = connect()) {
+                    connection.isValid(2);
+                } catch (SQLException e) {
+                    throw new AssumptionViolatedException("PostgreSQL is not reachable at " + URL, e);
+                }
+                base.evaluate();
+            }
+        };
+    }
+}
@@ -0,0 +1,188 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.AnswerDao;
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+public class AnswerVoteBufferTest {
+
+    //batches written by the buffer, each as the parallel answer id, user id and vote arrays
+    private final List<Object[]> written = new CopyOnWriteArrayList<>();
+
+    private AnswerDao answerDao;
+
+    @Before
+    public void setUp() {
+        answerDao = mock(AnswerDao.class);
+        recordBatches();
+    }
+
+    private void recordBatches() {
+        doAnswer(invocation -> {
+            written.add(invocation.getArguments());
+            return ((Integer[]) invocation.getArgument(0)).length;
+        }).when(answerDao).applyVotes(any(), any(), any());
+    }
+
+    //This test case passes when the held votes are written in batches of the batch size, ordered by answer and user,
+    //with repeated votes of a user on an answer coalesced into the last one.
+    @Test
+    public void votesAreWrittenOrderedInBatches() throws Exception {
+        final AnswerVoteBuffer buffer = buffer(3);
+        buffer.vote(2, 1, true);
+        buffer.vote(1, 2, true);
+        buffer.vote(1, 1, true);
+        buffer.vote(3, 1, true);
+        buffer.vote(1, 1, false);
+
+        buffer.flush();
+
+        assertEquals(2, written.size());
+        assertEquals(3, ((Integer[]) written.get(0)[0]).length);
+        final List<String> votes = new ArrayList<>();
+        for (Object[] batch : written) {
+            for (int i = 0; i < ((Integer[]) batch[0]).length; i++) {
+                votes.add(((Integer[]) batch[0])[i] + "/" + ((Integer[]) batch[1])[i] + "=" + ((Short[]) batch[2])[i]);
+            }
+        }
+        assertEquals("[1/1=-1, 1/2=1, 2/1=1, 3/1=1]", votes.toString());
+        assertEquals(5, buffer.getReceivedCount());
+        assertEquals(1, buffer.getCoalescedCount());
+        assertEquals(2, buffer.getBatchCount());
+    }
+
+    //This test case passes when the votes of a failed batch are written by the next flush, except those a newer vote replaced.
+    @Test
+    public void failedBatchIsRetriedWithNewerVotes() throws Exception {
+        final AnswerVoteBuffer buffer = buffer(100);
+        doThrow(new IllegalStateException("database down")).when(answerDao).applyVotes(any(), any(), any());
+        buffer.vote(1, 1, true);
+        buffer.vote(2, 1, true);
+        buffer.flush();
+        buffer.vote(1, 1, false);
+        recordBatches();
+
+        buffer.flush();
+
+        assertEquals(1, written.size());
+        final Map<String, Short> votes = votes(written);
+        assertEquals(2, votes.size());
+        assertEquals(-1, (short) votes.get("1/1"));
+        assertEquals(1, (short) votes.get("2/1"));
+    }
+
+    //This test case passes when votes are turned away with GEN-002 once max-pending votes are held by failing batches,
+    //and accepted again after the held votes have been written.
+    @Test
+    public void votesBeyondMaxPendingAreRejected() throws Exception {
+        final AnswerVoteBuffer buffer = buffer(100, 2);
+        doThrow(new IllegalStateException("database down")).when(answerDao).applyVotes(any(), any(), any());
+        buffer.vote(1, 1, true);
+        buffer.vote(2, 1, true);
+        buffer.flush();
+        assertEquals(2, buffer.getPendingCount());
+        try {
+            buffer.vote(3, 1, true);
+            fail("vote beyond max-pending accepted");
+        } catch (ServiceUnavailableException e) {
+            assertEquals("GEN-002", e.getCode());
+        }
+        assertEquals(1, buffer.getRejectedCount());
+
+        recordBatches();
+        buffer.flush();
+        assertEquals(0, buffer.getPendingCount());
+        buffer.vote(3, 1, true);
+        buffer.flush();
+
+        assertEquals(3, votes(written).size());
+    }
+
+    //This test case passes when every vote cast while flushes run concurrently is written exactly once.
+    @Test
+    public void concurrentFlushesWriteEveryVoteOnce() throws Exception {
+        final AnswerVoteBuffer buffer = buffer(500);
+        final AtomicBoolean voting = new AtomicBoolean(true);
+        final Thread flusher = new Thread(() -> {
+            while (voting.get()) {
+                buffer.flush();
+            }
+        });
+        flusher.start();
+        final int threads = 8;
+        final int votesPerThread = 20_000;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int userId = t + 1;
+            results.add(executor.submit(() -> {
+                for (int answerId = 1; answerId <= votesPerThread; answerId++) {
+                    buffer.vote(answerId, userId, true);
+                }
+                return null;
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        voting.set(false);
+        flusher.join();
+        buffer.flush();
+
+        final Map<String, Short> votes = new HashMap<>();
+        for (Object[] batch : written) {
+            for (int i = 0; i < ((Integer[]) batch[0]).length; i++) {
+                assertNull("vote written twice",
+                        votes.put(((Integer[]) batch[0])[i] + "/" + ((Integer[]) batch[1])[i], ((Short[]) batch[2])[i]));
+            }
+        }
+        assertEquals(threads * votesPerThread, votes.size());
+        assertEquals(threads * votesPerThread, buffer.getReceivedCount());
+    }
+
+    private AnswerVoteBuffer buffer(final int batchSize) {
+        return buffer(batchSize, Integer.MAX_VALUE);
+    }
+
+    private AnswerVoteBuffer buffer(final int batchSize, final int maxPending) {
+        final AnswerVoteBuffer buffer = new AnswerVoteBuffer(batchSize, 4, maxPending);
+        ReflectionTestUtils.setField(buffer, "answerDao", answerDao);
+        ReflectionTestUtils.setField(buffer, "transactionManager", mock(PlatformTransactionManager.class));
+        return buffer;
+    }
+
+    private static Map<String, Short> votes(final List<Object[]> batches) {
+        final Map<String, Short> votes = new HashMap<>();
+        for (Object[] batch : batches) {
+            for (int i = 0; i < ((Integer[]) batch[0]).length; i++) {
+                votes.put(((Integer[]) batch[0])[i] + "/" + ((Integer[]) batch[1])[i], ((Short[]) batch[2])[i]);
+            }
+        }
+        return votes;
+    }
+}
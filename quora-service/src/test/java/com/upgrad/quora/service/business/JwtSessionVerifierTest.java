@@ -0,0 +1,100 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserEntity;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.ZonedDateTime;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class JwtSessionVerifierTest {
+
+    private static final String SECRET = "test-secret";
+
+    private UserDao userDao;
+    private String accessToken;
+
+    @Before
+    public void setUp() {
+        userDao = mock(UserDao.class);
+        when(userDao.getAccessTokensSignedOutSince(any(), any())).thenReturn(Collections.emptyList());
+        when(userDao.getUsersRevokedSince(any(), any())).thenReturn(Collections.emptyMap());
+
+        final UserEntity user = new UserEntity();
+        user.setId(7);
+        user.setUuid("user-uuid");
+        user.setRole("nonadmin");
+        final ZonedDateTime now = ZonedDateTime.now();
+        accessToken = new JwtTokenProvider(SECRET).generateToken(user, now, now.plusHours(8));
+    }
+
+    //This test case passes when the removal of a user is stored, so that it outlives the process revoking it.
+    @Test
+    public void userRevocationIsPersisted() throws Exception {
+        final JwtSessionVerifier verifier = verifier();
+        assertNotNull(verifier.verify(accessToken));
+
+        verifier.revokeUser("user-uuid");
+
+        final ArgumentCaptor<ZonedDateTime> expiresAt = ArgumentCaptor.forClass(ZonedDateTime.class);
+        verify(userDao).revokeUser(eq("user-uuid"), any(ZonedDateTime.class), expiresAt.capture());
+        assertTrue(expiresAt.getValue().isAfter(ZonedDateTime.now().plusHours(7)));
+        assertRevoked(verifier);
+    }
+
+    //This test case passes when an instance which did not delete the user, or restarted since, rejects the user's tokens
+    //once it has read the stored revocations.
+    @Test
+    public void userRevokedElsewhereIsRejectedAfterRefresh() throws Exception {
+        final JwtSessionVerifier verifier = verifier();
+        when(userDao.getUsersRevokedSince(any(), any()))
+                .thenReturn(Collections.singletonMap("user-uuid", System.currentTimeMillis() + 3600_000L));
+
+        verifier.refreshRevocations();
+
+        assertEquals(1, verifier.getRevokedUserCount());
+        assertRevoked(verifier);
+    }
+
+    //This test case passes when stored revocations whose tokens have all expired are forgotten.
+    @Test
+    public void expiredUserRevocationIsForgotten() throws Exception {
+        final JwtSessionVerifier verifier = verifier();
+        when(userDao.getUsersRevokedSince(any(), any()))
+                .thenReturn(Collections.singletonMap("user-uuid", System.currentTimeMillis() - 1));
+
+        verifier.refreshRevocations();
+
+        assertEquals(0, verifier.getRevokedUserCount());
+        assertNotNull(verifier.verify(accessToken));
+    }
+
+    private JwtSessionVerifier verifier() {
+        final JwtSessionVerifier verifier = new JwtSessionVerifier(JwtSessionVerifier.STATELESS_MODE, SECRET, 8);
+        ReflectionTestUtils.setField(verifier, "userDao", userDao);
+        return verifier;
+    }
+
+    private void assertRevoked(final JwtSessionVerifier verifier) {
+        try {
+            verifier.verify(accessToken);
+            fail("token of a deleted user was accepted");
+        } catch (AuthorizationFailedException e) {
+            assertEquals("ATHR-002", e.getCode());
+        }
+    }
+}
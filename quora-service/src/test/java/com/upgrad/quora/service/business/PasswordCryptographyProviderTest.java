@@ -0,0 +1,64 @@
+package com.upgrad.quora.service.business;
+
+import org.junit.Test;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class PasswordCryptographyProviderTest {
+
+    private static final List<String> PASSWORDS = Arrays.asList(
+            "", "a", "password", "P@ssw0rd!", "pässwörd", "пароль", "密码", "パスワード", "🔑key",
+            //longer than the HMAC-SHA512 block of 128 bytes, so the key is hashed before use
+            repeat("long password ", 20), repeat("ü", 100));
+
+    //This test case passes when the hand rolled PBKDF2 produces the hash of the PBKDF2WithHmacSHA512 SecretKeyFactory
+    //for ascii and non ascii passwords across random salts.
+    @Test
+    public void hashMatchesSecretKeyFactory() throws Exception {
+        final Random random = new Random(42);
+        for (String password : PASSWORDS) {
+            for (int i = 0; i < 5; i++) {
+                final byte[] salt = new byte[1 + random.nextInt(64)];
+                random.nextBytes(salt);
+                assertEquals(password, secretKeyFactoryHash(password, salt),
+                        PasswordCryptographyProvider.encrypt(password, Base64.getEncoder().encodeToString(salt)));
+            }
+        }
+    }
+
+    //This test case passes when the salt and hash created at signup verify the same password at signin.
+    @Test
+    public void signupHashIsReproducedAtSignin() throws Exception {
+        final PasswordCryptographyProvider provider = new PasswordCryptographyProvider();
+        for (String password : PASSWORDS) {
+            final String[] saltAndHash = provider.encrypt(password);
+            assertEquals(saltAndHash[1], PasswordCryptographyProvider.encrypt(password, saltAndHash[0]));
+            assertEquals(saltAndHash[1], secretKeyFactoryHash(password, Base64.getDecoder().decode(saltAndHash[0])));
+        }
+    }
+
+    private static String secretKeyFactoryHash(final String password, final byte[] salt) throws Exception {
+        final PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, 1000, 64);
+        final byte[] hash = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512").generateSecret(spec).getEncoded();
+        final StringBuilder hex = new StringBuilder();
+        for (byte b : hash) {
+            hex.append(String.format("%02X", b));
+        }
+        return hex.toString();
+    }
+
+    private static String repeat(final String value, final int times) {
+        final StringBuilder repeated = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            repeated.append(value);
+        }
+        return repeated.toString();
+    }
+}
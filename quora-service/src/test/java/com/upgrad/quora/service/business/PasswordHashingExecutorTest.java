@@ -0,0 +1,47 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.exception.AuthenticationFailedException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PasswordHashingExecutorTest {
+
+    private final PasswordHashingExecutor executor = new PasswordHashingExecutor(2, 8, 2);
+
+    @After
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    //This test case passes when the work following the hash runs on the session pool, never on a hashing thread.
+    @Test
+    public void continuationRunsOnSessionPool() throws Exception {
+        final String salt = new PasswordCryptographyProvider().encrypt("other")[0];
+        final String thread = executor.encryptThen("password", salt, encryptedPassword -> {
+            assertEquals(PasswordCryptographyProvider.encrypt("password", salt), encryptedPassword);
+            return Thread.currentThread().getName();
+        }).get(10, TimeUnit.SECONDS);
+        assertTrue(thread, thread.startsWith("sign-in-session-"));
+    }
+
+    //This test case passes when an exception thrown by the continuation fails the returned future with its cause.
+    @Test
+    public void continuationFailureIsPropagated() throws Exception {
+        try {
+            executor.encryptThen("password", new PasswordCryptographyProvider().encrypt("other")[0], encryptedPassword -> {
+                throw new CompletionException(new AuthenticationFailedException("ATH-002", "Password failed"));
+            }).get(10, TimeUnit.SECONDS);
+            fail("failed continuation completed normally");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof AuthenticationFailedException);
+        }
+    }
+}
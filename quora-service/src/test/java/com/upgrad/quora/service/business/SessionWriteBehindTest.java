@@ -0,0 +1,85 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.cache.AccessTokenCache;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.ZonedDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class SessionWriteBehindTest {
+
+    private UserDao userDao;
+
+    @Before
+    public void setUp() {
+        userDao = mock(UserDao.class);
+    }
+
+    //This test case passes when a sign out in write-through mode is written at once and nothing is held in memory.
+    @Test
+    public void writeThroughSignsOutAtOnce() {
+        final SessionWriteBehind writeBehind = writeBehind("write-through");
+        final ZonedDateTime logoutAt = ZonedDateTime.now();
+
+        writeBehind.signOut(session(1, "token"), logoutAt);
+
+        verify(userDao).signOutActiveSession(1, logoutAt);
+        assertFalse(writeBehind.isSignedOut("token"));
+        assertEquals(0, writeBehind.getPendingCount());
+        writeBehind.flush();
+        verify(userDao, never()).signOutSessions(any());
+    }
+
+    //This test case passes when a sign out in write-behind mode revokes the token at once, is written by the next flush,
+    //and stays pending while its batch fails.
+    @Test
+    public void writeBehindRevokesAtOnceAndWritesInBatches() {
+        final SessionWriteBehind writeBehind = writeBehind("write-behind");
+        doThrow(new IllegalStateException("database down")).when(userDao).signOutSessions(any());
+
+        writeBehind.signOut(session(1, "first"), ZonedDateTime.now());
+        writeBehind.signOut(session(2, "second"), ZonedDateTime.now());
+        verify(userDao, never()).signOutActiveSession(anyLong(), any());
+        assertTrue(writeBehind.isSignedOut("first"));
+        writeBehind.flush();
+        assertEquals(2, writeBehind.getPendingCount());
+
+        doNothing().when(userDao).signOutSessions(any());
+        writeBehind.flush();
+
+        assertEquals(0, writeBehind.getPendingCount());
+        assertEquals(2, writeBehind.getWrittenCount());
+        assertTrue(writeBehind.isSignedOut("second"));
+        verify(userDao, never()).signOutActiveSession(anyLong(), any());
+    }
+
+    private SessionWriteBehind writeBehind(final String mode) {
+        final SessionWriteBehind writeBehind = new SessionWriteBehind(mode, 500, 5000);
+        ReflectionTestUtils.setField(writeBehind, "userDao", userDao);
+        ReflectionTestUtils.setField(writeBehind, "accessTokenCache", new AccessTokenCache(100, 300));
+        ReflectionTestUtils.setField(writeBehind, "transactionManager", mock(PlatformTransactionManager.class));
+        return writeBehind;
+    }
+
+    private static UserAuthEntity session(final long id, final String accessToken) {
+        final UserAuthEntity session = new UserAuthEntity();
+        session.setId(id);
+        session.setAccessToken(accessToken);
+        return session;
+    }
+}
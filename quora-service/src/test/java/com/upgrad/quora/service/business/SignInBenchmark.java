@@ -0,0 +1,147 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.cache.AccessTokenFilter;
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput of signup and signin through the services, with the database replaced by an in-memory user,
+ * so that the cost measured is the password hashing, the hand-off between the pools and the token generation.
+ * Run with: mvn -pl quora-service -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.main=com.upgrad.quora.service.business.SignInBenchmark
+ * which measures both at 1, 8 and 32 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SignInBenchmark {
+
+    private static final String PASSWORD = "password";
+
+    private final AtomicLong signups = new AtomicLong();
+
+    private UserBusinessService userBusinessService;
+    private AuthenticationService authenticationService;
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Setup
+    public void setUp() {
+        final PasswordCryptographyProvider cryptographyProvider = new PasswordCryptographyProvider();
+        final UserEntity user = new UserEntity();
+        user.setId(1);
+        user.setUuid(UUID.randomUUID().toString());
+        user.setUserName("user");
+        user.setRole("nonadmin");
+        final String[] saltAndHash = cryptographyProvider.encrypt(PASSWORD);
+        user.setSalt(saltAndHash[0]);
+        user.setPassword(saltAndHash[1]);
+
+        final UserDao userDao = new UserDao() {
+            @Override
+            public UserEntity getUserByUserName(final String username) {
+                return "user".equals(username) ? user : null;
+            }
+
+            @Override
+            public UserEntity getUserByEmail(final String email) {
+                return null;
+            }
+
+            @Override
+            public UserEntity createUser(final UserEntity userEntity) {
+                return userEntity;
+            }
+
+            @Override
+            public UserAuthEntity createAuthToken(final UserAuthEntity userAuthEntity) {
+                return userAuthEntity;
+            }
+        };
+        final JwtSessionVerifier jwtSessionVerifier = new JwtSessionVerifier(JwtSessionVerifier.STATELESS_MODE, "benchmark-secret", 8);
+        final AccessTokenFilter accessTokenFilter = new AccessTokenFilter(1_000_000, 0.01, 5000);
+        passwordHashingExecutor = new PasswordHashingExecutor(0, 64, 10);
+
+        userBusinessService = new UserBusinessService();
+        ReflectionTestUtils.setField(userBusinessService, "userDao", userDao);
+        ReflectionTestUtils.setField(userBusinessService, "cryptographyProvider", cryptographyProvider);
+
+        authenticationService = new AuthenticationService();
+        ReflectionTestUtils.setField(authenticationService, "userDao", userDao);
+        ReflectionTestUtils.setField(authenticationService, "CryptographyProvider", cryptographyProvider);
+        ReflectionTestUtils.setField(authenticationService, "jwtSessionVerifier", jwtSessionVerifier);
+        ReflectionTestUtils.setField(authenticationService, "accessTokenFilter", accessTokenFilter);
+        ReflectionTestUtils.setField(authenticationService, "passwordHashingExecutor", passwordHashingExecutor);
+        ReflectionTestUtils.setField(authenticationService, "transactionManager", new NoTransactionManager());
+        ReflectionTestUtils.setField(authenticationService, "refreshTokenProvider", new RefreshTokenProvider());
+        ReflectionTestUtils.setField(authenticationService, "refreshTokenLifetimeDays", 30L);
+    }
+
+    @TearDown
+    public void tearDown() {
+        passwordHashingExecutor.shutdown();
+    }
+
+    @Benchmark
+    public UserEntity signup() throws Exception {
+        final UserEntity user = new UserEntity();
+        user.setUserName("signup" + signups.incrementAndGet());
+        user.setEmailAddress(user.getUserName() + "@example.com");
+        user.setPassword(PASSWORD);
+        return userBusinessService.createUser(user);
+    }
+
+    @Benchmark
+    public UserAuthEntity signin() {
+        return authenticationService.authenticateAsync("user", PASSWORD).join();
+    }
+
+    public static void main(final String[] args) throws Exception {
+        for (int threads : new int[]{1, 8, 32}) {
+            new Runner(new OptionsBuilder()
+                    .include(SignInBenchmark.class.getName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+
+    private static final class NoTransactionManager implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(final TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(final TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(final TransactionStatus status) {
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.exception.RateLimitExceededException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the sign in rate limiter with one lock against striped locks, for attempts spread over many
+ * usernames and addresses. The buckets are large enough that no attempt is rejected.
+ * Run with: mvn -pl quora-service -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.main=com.upgrad.quora.service.business.SignInRateLimiterBenchmark
+ * which measures at 1, 8 and 32 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SignInRateLimiterBenchmark {
+
+    private static final int KEYS = 100_000;
+
+    @Param({"1", "64"})
+    public int stripes;
+
+    private SignInRateLimiter limiter;
+    private String[] usernames;
+    private String[] addresses;
+
+    @Setup
+    public void setUp() {
+        limiter = new SignInRateLimiter(true, Integer.MAX_VALUE, 1, Integer.MAX_VALUE, 1,
+                stripes, KEYS, System::nanoTime);
+        usernames = new String[KEYS];
+        addresses = new String[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            usernames[i] = "user" + i;
+            addresses[i] = "10." + (i >>> 16) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+        }
+    }
+
+    @Benchmark
+    public void acquire() throws RateLimitExceededException {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        limiter.acquire(usernames[random.nextInt(KEYS)], addresses[random.nextInt(KEYS)]);
+    }
+
+    public static void main(final String[] args) throws Exception {
+        for (int threads : new int[]{1, 8, 32}) {
+            new Runner(new OptionsBuilder()
+                    .include(SignInRateLimiterBenchmark.class.getName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
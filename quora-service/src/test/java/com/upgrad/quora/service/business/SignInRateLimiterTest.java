@@ -0,0 +1,152 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.exception.RateLimitExceededException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SignInRateLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    //This test case passes when a username gets as many attempts as the bucket holds and is rejected after that.
+    @Test
+    public void burstIsLimitedToCapacity() {
+        final SignInRateLimiter limiter = limiter(5, 30, 64, 4096);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(acquire(limiter, "user", "10.0.0." + i));
+        }
+        assertFalse(acquire(limiter, "user", "10.0.0.9"));
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    //This test case passes when an address gets as many attempts as its bucket holds, whatever usernames it tries.
+    @Test
+    public void addressIsLimitedAcrossUsernames() {
+        final SignInRateLimiter limiter = limiter(5, 30, 64, 4096);
+        for (int i = 0; i < 30; i++) {
+            assertTrue(acquire(limiter, "user" + i, "10.0.0.1"));
+        }
+        assertFalse(acquire(limiter, "another", "10.0.0.1"));
+        assertTrue(acquire(limiter, "another", "10.0.0.2"));
+    }
+
+    //This test case passes when an emptied bucket refills at its rate and never beyond its capacity.
+    @Test
+    public void bucketRefillsAtItsRate() {
+        final SignInRateLimiter limiter = limiter(5, 30, 64, 4096);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(acquire(limiter, "user", "10.0.0.1"));
+        }
+        //five attempts a minute, one every twelve seconds
+        advance(11);
+        assertFalse(acquire(limiter, "user", "10.0.0.1"));
+        advance(2);
+        assertTrue(acquire(limiter, "user", "10.0.0.1"));
+        assertFalse(acquire(limiter, "user", "10.0.0.1"));
+
+        advance(3600);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(acquire(limiter, "user", "10.0.0.1"));
+        }
+        assertFalse(acquire(limiter, "user", "10.0.0.1"));
+    }
+
+    //This test case passes when buckets are forgotten by the sweep only once they have refilled completely.
+    @Test
+    public void idleBucketsAreEvictedOnceFull() {
+        final SignInRateLimiter limiter = limiter(5, 30, 64, 4096);
+        assertTrue(acquire(limiter, "user", "10.0.0.1"));
+        assertEquals(2, limiter.getTrackedKeyCount());
+
+        //the username bucket is full again after twelve seconds, the address bucket after two
+        advance(3);
+        limiter.evictIdle();
+        assertEquals(1, limiter.getTrackedKeyCount());
+        advance(10);
+        limiter.evictIdle();
+        assertEquals(0, limiter.getTrackedKeyCount());
+    }
+
+    //This test case passes when a stripe holds no more than its maximum number of keys.
+    @Test
+    public void stripeDropsLeastRecentlyUsedKey() {
+        final SignInRateLimiter limiter = limiter(5, 30, 1, 2);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(acquire(limiter, "user" + i, "10.0.0." + i));
+        }
+        assertEquals(4, limiter.getTrackedKeyCount());
+    }
+
+    //This test case passes when a disabled limiter lets every attempt through.
+    @Test
+    public void disabledLimiterNeverRejects() {
+        final SignInRateLimiter limiter = new SignInRateLimiter(false, 1, 1, 1, 1, 64, 4096, clock::get);
+        for (int i = 0; i < 100; i++) {
+            assertTrue(acquire(limiter, "user", "10.0.0.1"));
+        }
+        assertEquals(0, limiter.getTrackedKeyCount());
+    }
+
+    //This test case passes when concurrent attempts of one username at a standing clock get exactly the capacity.
+    @Test
+    public void concurrentAttemptsGetExactlyCapacity() throws Exception {
+        final SignInRateLimiter limiter = limiter(100, 100_000, 64, 4096);
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final AtomicInteger granted = new AtomicInteger();
+        final List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int thread = t;
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1000; i++) {
+                    if (acquire(limiter, "user", "10.0." + thread + "." + i)) {
+                        granted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        assertEquals(100, granted.get());
+        assertEquals(threads * 1000 - 100, limiter.getRejectedCount());
+    }
+
+    private SignInRateLimiter limiter(final int usernameCapacity, final int addressCapacity,
+                                      final int stripes, final int maxKeysPerStripe) {
+        return new SignInRateLimiter(true, usernameCapacity, usernameCapacity, addressCapacity, addressCapacity,
+                stripes, maxKeysPerStripe, clock::get);
+    }
+
+    private void advance(final long seconds) {
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(seconds));
+    }
+
+    private static boolean acquire(final SignInRateLimiter limiter, final String username, final String clientAddress) {
+        try {
+            limiter.acquire(username, clientAddress);
+            return true;
+        } catch (RateLimitExceededException e) {
+            assertEquals("ATH-003", e.getCode());
+            return false;
+        }
+    }
+}
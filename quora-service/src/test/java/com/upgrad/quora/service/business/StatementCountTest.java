@@ -0,0 +1,168 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.DatabaseTestApplication;
+import com.upgrad.quora.service.PostgresAvailable;
+import com.upgrad.quora.service.dto.QuestionAnswersPage;
+import com.upgrad.quora.service.entity.Answer;
+import com.upgrad.quora.service.entity.Question;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.ZonedDateTime;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Counts the SQL statements the service methods behind the question and answer endpoints run, through the
+ * Hibernate statistics. Every test starts from an empty persistence context and with the caches disabled,
+ * so that each lookup goes to the database; the fixtures are rolled back with the test transaction.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = DatabaseTestApplication.class, webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Transactional
+public class StatementCountTest {
+
+    @ClassRule
+    public static final PostgresAvailable POSTGRES = new PostgresAvailable();
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private AnswerService answerService;
+
+    @Autowired
+    private QuestionService questionService;
+
+    private Statistics statistics;
+    private UserEntity asker;
+    private Question question;
+    private Answer answer;
+
+    @Before
+    public void setUp() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        asker = user();
+        question = new Question();
+        question.setUuid(UUID.randomUUID().toString());
+        question.setContent("Which index serves the answers of a question?");
+        question.setDate(ZonedDateTime.now());
+        question.setUser(asker);
+        entityManager.persist(question);
+        //answers of different users, which must not be loaded one by one
+        answer = answer(user());
+        answer(user());
+        answer(asker);
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+    }
+
+    //This test case passes when GET /answer/all/{questionId} reads the question and its answers in one statement,
+    //in either order.
+    @Test
+    public void answersOfQuestionTakeOneStatement() throws Exception {
+        QuestionAnswersPage page = answerService.getAnswersForQuestion(question.getUuid(), null, null, null);
+        assertEquals(3, page.getAnswers().getItems().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+        statistics.clear();
+        page = answerService.getAnswersForQuestion(question.getUuid(), "newest", null, null);
+        assertEquals(3, page.getAnswers().getItems().size());
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    //This test case passes when an answer is fetched with its user and its question with the question's user
+    //in one statement, so that reading them runs no further statement.
+    @Test
+    public void answerLookupFetchesItsGraphInOneStatement() throws Exception {
+        final Answer found = answerService.getAnswerForUuId(answer.getUuid());
+        found.getUser().getUserName();
+        found.getQuestion().getUser().getUserName();
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    //This test case passes when a question is fetched with its user in one statement.
+    @Test
+    public void questionLookupFetchesItsUserInOneStatement() throws Exception {
+        final Question found = questionService.getQuestionForUuId(question.getUuid());
+        found.getUser().getUserName();
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    //This test case passes when GET /question/all reads a page in one statement and
+    //GET /question/all/{userId} reads the user and a page of the user's questions in two.
+    @Test
+    public void questionListingsTakeOneStatementPerTable() throws Exception {
+        questionService.getAllQuestions(null, null);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        statistics.clear();
+        assertEquals(1, questionService.getQuestionsForUser(asker.getUuid(), null, null).getItems().size());
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    //This test case passes when the owner's edits and deletes check ownership and write in one statement each.
+    @Test
+    public void ownerEditsAndDeletesTakeOneStatement() throws Exception {
+        final UserAuthEntity session = new UserAuthEntity();
+        session.setUser(asker);
+        questionService.editQuestion(question.getUuid(), "Which index serves the listing?", session);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        statistics.clear();
+        session.setUser(answer.getUser());
+        answerService.editAnswer(answer.getUuid(), "The score index", session);
+        assertEquals(1, statistics.getPrepareStatementCount());
+        statistics.clear();
+        answerService.deleteAnswer(answer.getUuid(), session);
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    //This test case passes when loading an answer leaves its user and its question unloaded.
+    @Test
+    public void answerAssociationsAreLazy() {
+        final Answer found = entityManager.find(Answer.class, answer.getId());
+        assertFalse(Hibernate.isInitialized(found.getUser()));
+        assertFalse(Hibernate.isInitialized(found.getQuestion()));
+        assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    private UserEntity user() {
+        final String name = UUID.randomUUID().toString().substring(0, 8);
+        final UserEntity user = new UserEntity();
+        user.setUuid(UUID.randomUUID().toString());
+        user.setFirstName(name);
+        user.setLastName(name);
+        user.setUserName(name);
+        user.setEmailAddress(name + "@quora.test");
+        user.setPassword("password");
+        user.setSalt("salt");
+        user.setRole("nonadmin");
+        entityManager.persist(user);
+        return user;
+    }
+
+    private Answer answer(final UserEntity user) {
+        final Answer answer = new Answer();
+        answer.setUuid(UUID.randomUUID().toString());
+        answer.setAnswer("An answer of " + user.getUserName());
+        answer.setDate(ZonedDateTime.now());
+        answer.setUser(user);
+        answer.setQuestion(question);
+        entityManager.persist(answer);
+        return answer;
+    }
+}
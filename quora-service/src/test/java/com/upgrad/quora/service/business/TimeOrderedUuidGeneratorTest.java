@@ -0,0 +1,104 @@
+package com.upgrad.quora.service.business;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TimeOrderedUuidGeneratorTest {
+
+    private static final long NOW = 1_540_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong(NOW);
+    private final TimeOrderedUuidGenerator generator = new TimeOrderedUuidGenerator(clock::get);
+
+    //This test case passes when a uuid carries version 7, the RFC 4122 variant and the time it was generated at.
+    @Test
+    public void uuidCarriesVersionVariantAndTimestamp() {
+        final UUID uuid = generator.generate();
+        assertEquals(7, uuid.version());
+        assertEquals(2, uuid.variant());
+        assertEquals(NOW, timestampOf(uuid));
+    }
+
+    //This test case passes when the uuids generated within one millisecond sort in the order they were generated,
+    //as the strings stored in the uuid columns.
+    @Test
+    public void uuidsOfOneMillisecondAreOrdered() {
+        String previous = generator.generate().toString();
+        for (int i = 1; i < 4096; i++) {
+            final UUID uuid = generator.generate();
+            assertEquals(NOW, timestampOf(uuid));
+            assertTrue(uuid.toString().compareTo(previous) > 0);
+            previous = uuid.toString();
+        }
+    }
+
+    //This test case passes when, once the counter of a millisecond is exhausted, the uuids run ahead of the clock
+    //in order and the clock catching up does not reorder them.
+    @Test
+    public void counterOverflowRunsAheadOfClock() {
+        String previous = "";
+        for (int i = 0; i < 4096 * 3; i++) {
+            final String uuid = generator.generate().toString();
+            assertTrue(uuid.compareTo(previous) > 0);
+            previous = uuid;
+        }
+        final UUID ahead = generator.generate();
+        assertEquals(NOW + 3, timestampOf(ahead));
+        clock.set(NOW + 1);
+        final UUID caughtUp = generator.generate();
+        assertTrue(caughtUp.toString().compareTo(ahead.toString()) > 0);
+        clock.set(NOW + 10);
+        assertEquals(NOW + 10, timestampOf(generator.generate()));
+    }
+
+    //This test case passes when the uuids generated after the clock moved backwards still sort after the earlier ones.
+    @Test
+    public void clockRollbackDoesNotReorder() {
+        final UUID before = generator.generate();
+        clock.set(NOW - 60_000);
+        final UUID after = generator.generate();
+        assertTrue(after.toString().compareTo(before.toString()) > 0);
+        assertEquals(NOW, timestampOf(after));
+    }
+
+    //This test case passes when concurrent generation at a fixed clock hands out no uuid twice.
+    @Test
+    public void concurrentUuidsAreUnique() throws Exception {
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<List<UUID>>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            results.add(executor.submit(() -> {
+                final List<UUID> uuids = new ArrayList<>();
+                for (int i = 0; i < 10_000; i++) {
+                    uuids.add(generator.generate());
+                }
+                return uuids;
+            }));
+        }
+        final Set<UUID> unique = new HashSet<>();
+        for (Future<List<UUID>> result : results) {
+            unique.addAll(result.get());
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(threads * 10_000, unique.size());
+    }
+
+    private static long timestampOf(final UUID uuid) {
+        return uuid.getMostSignificantBits() >>> 16;
+    }
+}
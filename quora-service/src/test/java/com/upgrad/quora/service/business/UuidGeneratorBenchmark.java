@@ -0,0 +1,57 @@
+package com.upgrad.quora.service.business;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the random uuid generator, which shares one SecureRandom, against the time-ordered one,
+ * generating the uuid strings the controllers store. The index locality of the two is compared by UuidIndexLocalityTest.
+ * Run with: mvn -pl quora-service -Pbenchmark test-compile exec:exec
+ * -Dbenchmark.main=com.upgrad.quora.service.business.UuidGeneratorBenchmark
+ * which measures at 1, 8 and 32 threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UuidGeneratorBenchmark {
+
+    @Param({"random", "time-ordered"})
+    public String generator;
+
+    private UuidGenerator uuidGenerator;
+
+    @Setup
+    public void setUp() {
+        uuidGenerator = "random".equals(generator) ? new RandomUuidGenerator() : new TimeOrderedUuidGenerator();
+    }
+
+    @Benchmark
+    public String generate() {
+        return uuidGenerator.generate().toString();
+    }
+
+    public static void main(final String[] args) throws Exception {
+        for (int threads : new int[]{1, 8, 32}) {
+            new Runner(new OptionsBuilder()
+                    .include(UuidGeneratorBenchmark.class.getName())
+                    .threads(threads)
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.PostgresAvailable;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Inserts the uuids of both generators into indexed temporary tables shaped like the uuid columns of the entities,
+ * and compares the size of the resulting indexes. Random uuids split pages all over the index and leave them
+ * about two thirds full, time-ordered uuids append to the rightmost page, which is split to stay nearly full.
+ */
+public class UuidIndexLocalityTest {
+
+    @ClassRule
+    public static final PostgresAvailable POSTGRES = new PostgresAvailable();
+
+    private static final int ROWS = 50_000;
+    private static final int BATCH_SIZE = 1000;
+
+    //This test case passes when the index of time-ordered uuids is markedly smaller than the index of random ones.
+    @Test
+    public void timeOrderedUuidsFillIndexPages() throws SQLException {
+        try (Connection connection = PostgresAvailable.connect()) {
+            final long random = indexSize(connection, new RandomUuidGenerator());
+            final long timeOrdered = indexSize(connection, new TimeOrderedUuidGenerator());
+            assertTrue("index of time-ordered uuids " + timeOrdered + " bytes, of random uuids " + random + " bytes",
+                    timeOrdered < random * 0.85);
+        }
+    }
+
+    private static long indexSize(final Connection connection, final UuidGenerator generator) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop table if exists uuid_locality");
+            statement.execute("create temporary table uuid_locality (uuid varchar(200) not null)");
+            statement.execute("create index uuid_locality_idx on uuid_locality (uuid)");
+        }
+        try (PreparedStatement insert = connection.prepareStatement("insert into uuid_locality (uuid) values (?)")) {
+            for (int i = 1; i <= ROWS; i++) {
+                insert.setString(1, generator.generate().toString());
+                insert.addBatch();
+                if (i % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet size = statement.executeQuery("select pg_relation_size('uuid_locality_idx')")) {
+            size.next();
+            return size.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.upgrad.quora.service.business;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class VoteAccumulatorTest {
+
+    //This test case passes when a later vote of a user on an answer replaces the earlier one and is held once.
+    @Test
+    public void laterVoteReplacesEarlierOne() {
+        final VoteAccumulator votes = new VoteAccumulator(4);
+        assertFalse(votes.put(VoteAccumulator.key(1, 2), true));
+        assertTrue(votes.put(VoteAccumulator.key(1, 2), false));
+        assertEquals(1, votes.size());
+        final long[] entries = votes.drain();
+        assertEquals(0, votes.size());
+        assertEquals(1, entries.length);
+        assertEquals(1, VoteAccumulator.answerIdOf(entries[0]));
+        assertEquals(2, VoteAccumulator.userIdOf(entries[0]));
+        assertFalse(VoteAccumulator.isUp(entries[0]));
+        assertEquals(0, votes.drain().length);
+    }
+
+    //This test case passes when the drained votes decode to the answer, user and vote put, sort by answer and then user,
+    //and none is lost when the stripes grow past their initial capacity.
+    @Test
+    public void drainedVotesDecodeAndSortByAnswerThenUser() {
+        final VoteAccumulator votes = new VoteAccumulator(2);
+        for (int answerId = 1; answerId <= 100; answerId++) {
+            for (int userId = 1; userId <= 50; userId++) {
+                votes.put(VoteAccumulator.key(answerId, userId), (answerId + userId) % 2 == 0);
+            }
+        }
+        final long[] entries = votes.drain();
+        assertEquals(5000, entries.length);
+        Arrays.sort(entries);
+        int i = 0;
+        for (int answerId = 1; answerId <= 100; answerId++) {
+            for (int userId = 1; userId <= 50; userId++, i++) {
+                assertEquals(answerId, VoteAccumulator.answerIdOf(entries[i]));
+                assertEquals(userId, VoteAccumulator.userIdOf(entries[i]));
+                assertEquals((answerId + userId) % 2 == 0, VoteAccumulator.isUp(entries[i]));
+            }
+        }
+    }
+
+    //This test case passes when a vote put back after a failed write is restored, unless a newer vote was recorded meanwhile.
+    @Test
+    public void putBackDoesNotOverrideNewerVote() {
+        final VoteAccumulator votes = new VoteAccumulator(4);
+        votes.put(VoteAccumulator.key(1, 1), true);
+        votes.put(VoteAccumulator.key(2, 1), true);
+        final long[] failed = votes.drain();
+        votes.put(VoteAccumulator.key(1, 1), false);
+        for (long entry : failed) {
+            votes.putBack(entry);
+        }
+        assertEquals(2, votes.size());
+        final Map<Long, Boolean> held = toMap(votes.drain());
+        assertEquals(2, held.size());
+        assertFalse(held.get(VoteAccumulator.key(1, 1)));
+        assertTrue(held.get(VoteAccumulator.key(2, 1)));
+    }
+
+    //This test case passes when every vote put while other threads keep draining is drained exactly once.
+    @Test
+    public void concurrentDrainLosesAndDuplicatesNoVote() throws Exception {
+        final VoteAccumulator votes = new VoteAccumulator(8);
+        final int threads = 8;
+        final int votesPerThread = 50_000;
+        final List<long[]> drained = new ArrayList<>();
+        final AtomicBoolean voting = new AtomicBoolean(true);
+        final Thread drainer = new Thread(() -> {
+            while (voting.get()) {
+                drained.add(votes.drain());
+            }
+        });
+        drainer.start();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int userId = t + 1;
+            results.add(executor.submit(() -> {
+                start.await();
+                for (int answerId = 1; answerId <= votesPerThread; answerId++) {
+                    votes.put(VoteAccumulator.key(answerId, userId), answerId % 3 == 0);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        voting.set(false);
+        drainer.join();
+        drained.add(votes.drain());
+
+        final Map<Long, Boolean> all = new HashMap<>();
+        for (long[] entries : drained) {
+            for (long entry : entries) {
+                final long key = VoteAccumulator.key(VoteAccumulator.answerIdOf(entry), VoteAccumulator.userIdOf(entry));
+                assertNull("vote drained twice", all.put(key, VoteAccumulator.isUp(entry)));
+            }
+        }
+        assertEquals(threads * votesPerThread, all.size());
+        for (Map.Entry<Long, Boolean> vote : all.entrySet()) {
+            assertEquals(VoteAccumulator.answerIdOf(vote.getKey()) % 3 == 0, vote.getValue());
+        }
+    }
+
+    private static Map<Long, Boolean> toMap(final long[] entries) {
+        final Map<Long, Boolean> votes = new HashMap<>();
+        for (long entry : entries) {
+            votes.put(VoteAccumulator.key(VoteAccumulator.answerIdOf(entry), VoteAccumulator.userIdOf(entry)), VoteAccumulator.isUp(entry));
+        }
+        return votes;
+    }
+}
@@ -0,0 +1,104 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.dao.UserDao;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.ZonedDateTime;
+import java.util.Collections;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AccessTokenCacheTest {
+
+    @After
+    public void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    //This test case passes when a session cached by a concurrent lookup while its user is being deleted
+    //is dropped once the deleting transaction commits.
+    @Test
+    public void userInvalidationIsRepeatedAfterCommit() {
+        final AccessTokenCache cache = new AccessTokenCache(100, 300);
+        cache.put(session("user", "token"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.invalidateUser("user");
+        assertNull(cache.get("token"));
+        //a lookup which read the session row before the delete commits caches it again
+        cache.put(session("user", "token"));
+        assertNotNull(cache.get("token"));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        assertNull(cache.get("token"));
+    }
+
+    //This test case passes when signed out sessions are never cached.
+    @Test
+    public void signedOutSessionIsNotCached() {
+        final AccessTokenCache cache = new AccessTokenCache(100, 300);
+        final UserAuthEntity session = session("user", "token");
+        session.setLogoutAt(ZonedDateTime.now());
+        cache.put(session);
+        assertNull(cache.get("token"));
+    }
+
+    //This test case passes when the sync drops the sessions signed out by another instance and the sessions of users
+    //removed by another instance, and keeps every other session.
+    @Test
+    public void syncDropsSessionsRevokedElsewhere() {
+        final AccessTokenCache cache = new AccessTokenCache(100, 300);
+        final UserDao userDao = mock(UserDao.class);
+        ReflectionTestUtils.setField(cache, "userDao", userDao);
+        when(userDao.getAccessTokensSignedOutSince(any(), any())).thenReturn(Collections.singletonList("signed-out"));
+        when(userDao.getUsersRevokedSince(any(), any())).thenReturn(Collections.singletonMap("removed", Long.MAX_VALUE));
+        cache.put(session("user", "signed-out"));
+        cache.put(session("removed", "first"));
+        cache.put(session("removed", "second"));
+        cache.put(session("user", "live"));
+
+        cache.sync();
+
+        assertNull(cache.get("signed-out"));
+        assertNull(cache.get("first"));
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("live"));
+    }
+
+    //This test case passes when the sync of an empty cache does not query the database.
+    @Test
+    public void syncOfEmptyCacheSkipsDatabase() {
+        final AccessTokenCache cache = new AccessTokenCache(100, 300);
+        final UserDao userDao = mock(UserDao.class);
+        ReflectionTestUtils.setField(cache, "userDao", userDao);
+
+        cache.sync();
+
+        verify(userDao, never()).getAccessTokensSignedOutSince(any(), any());
+        verify(userDao, never()).getUsersRevokedSince(any(), any());
+    }
+
+    private static UserAuthEntity session(final String userUuid, final String accessToken) {
+        final UserAuthEntity session = new UserAuthEntity();
+        session.setUuid(userUuid);
+        session.setAccessToken(accessToken);
+        session.setExpiresAt(ZonedDateTime.now().plusHours(1));
+        return session;
+    }
+}
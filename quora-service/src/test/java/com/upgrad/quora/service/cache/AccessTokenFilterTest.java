@@ -0,0 +1,158 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.business.JwtTokenProvider;
+import com.upgrad.quora.service.dao.UserDao;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class AccessTokenFilterTest {
+
+    private final JwtTokenProvider tokenProvider = new JwtTokenProvider("test-secret");
+
+    //access tokens of the committed sessions, as returned by the rebuild and sync queries
+    private final List<Object[]> sessions = new CopyOnWriteArrayList<>();
+
+    //token lookups of the rebuild and the sync, answered from the sessions above
+    private final UserDao userDao = new UserDao() {
+        @Override
+        public List<Object[]> getAccessTokensAfterId(final long id, final int maxResults) {
+            final List<Object[]> batch = new ArrayList<>();
+            for (Object[] session : sessions) {
+                if ((Long) session[0] > id && batch.size() < maxResults) {
+                    batch.add(session);
+                }
+            }
+            return batch;
+        }
+
+        @Override
+        public List<String> getAccessTokensLoggedInSince(final ZonedDateTime since) {
+            return loggedInSince;
+        }
+    };
+
+    private volatile List<String> loggedInSince = Collections.emptyList();
+
+    //This test case passes when every token put into the filter is let through, at a filled up filter.
+    @Test
+    public void putTokensAreNeverRejected() {
+        final AccessTokenFilter filter = filter(10_000);
+        filter.rebuild();
+        final List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            final String token = "token-" + i;
+            tokens.add(token);
+            filter.put(token);
+        }
+        for (String token : tokens) {
+            assertTrue(filter.mightContain(token));
+        }
+    }
+
+    //This test case passes when tokens read by a rebuild are let through and old unknown tokens are rejected.
+    @Test
+    public void rebuildReadsCommittedTokens() {
+        final String known = token("known", ZonedDateTime.now().minusDays(1));
+        sessions.add(new Object[]{1L, known});
+        final AccessTokenFilter filter = filter(1000);
+        assertTrue(filter.mightContain(token("unknown", ZonedDateTime.now().minusDays(1))));
+
+        filter.rebuild();
+
+        assertTrue(filter.mightContain(known));
+        assertFalse(filter.mightContain(token("unknown", ZonedDateTime.now().minusDays(1))));
+        assertFalse(filter.mightContain("not-a-token"));
+    }
+
+    //This test case passes when a token issued by another instance after the last rebuild goes to the database
+    //instead of being rejected, and is known to the filter after the next sync.
+    @Test
+    public void tokenOfAnotherInstanceIsNotRejected() {
+        final AccessTokenFilter filter = filter(1000);
+        filter.rebuild();
+
+        final String otherInstanceToken = token("other", ZonedDateTime.now());
+        assertTrue(filter.mightContain(otherInstanceToken));
+
+        loggedInSince = Collections.singletonList(otherInstanceToken);
+        filter.sync();
+        assertTrue(filter.mightContain(otherInstanceToken));
+        assertEquals(1, filter.getUncoveredCount());
+    }
+
+    //This test case passes when a token registered by a sign in whose transaction commits after a rebuild
+    //read the sessions is still known once that rebuild swapped in its filter.
+    @Test
+    public void tokenCommittedAfterRebuildReadIsNotLost() {
+        final AccessTokenFilter filter = filter(1000);
+        filter.rebuild();
+        final String token = token("user", ZonedDateTime.now().minusDays(1));
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            filter.put(token);
+            //the rebuild reads the sessions before the sign in commits and swaps in a filter without its token
+            filter.rebuild();
+            sessions.add(new Object[]{1L, token});
+            for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+                synchronization.afterCommit();
+            }
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        assertTrue(filter.mightContain(token));
+    }
+
+    //This test case passes when no token registered while rebuilds keep swapping the filter is lost.
+    @Test
+    public void putDuringRebuildsIsNotLost() throws Exception {
+        final AccessTokenFilter filter = filter(10_000);
+        filter.rebuild();
+        final AtomicBoolean signingIn = new AtomicBoolean(true);
+        final Thread rebuilder = new Thread(() -> {
+            while (signingIn.get()) {
+                filter.rebuild();
+            }
+        });
+        rebuilder.start();
+        final List<String> tokens = new ArrayList<>();
+        //old tokens, so that none of them is let through for being younger than the last rebuild
+        final ZonedDateTime issuedAt = ZonedDateTime.now().minusDays(1);
+        for (int i = 0; i < 2_000; i++) {
+            final String token = token("user" + i, issuedAt);
+            tokens.add(token);
+            //the session commits, then its token is registered
+            sessions.add(new Object[]{(long) i + 1, token});
+            filter.put(token);
+        }
+        signingIn.set(false);
+        rebuilder.join();
+        for (String token : tokens) {
+            assertTrue(filter.mightContain(token));
+        }
+    }
+
+    private AccessTokenFilter filter(final long expectedInsertions) {
+        final AccessTokenFilter filter = new AccessTokenFilter(expectedInsertions, 0.01, 500);
+        ReflectionTestUtils.setField(filter, "userDao", userDao);
+        return filter;
+    }
+
+    private String token(final String userUuid, final ZonedDateTime issuedAt) {
+        return tokenProvider.generateToken(userUuid, issuedAt, issuedAt.plusHours(8));
+    }
+}
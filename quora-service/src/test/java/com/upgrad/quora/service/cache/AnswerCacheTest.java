@@ -0,0 +1,90 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.entity.Answer;
+import com.upgrad.quora.service.entity.Question;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class AnswerCacheTest {
+
+    private final UserEntity owner = new UserEntity();
+
+    @After
+    public void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    //This test case passes when a cached answer keeps only the id, uuid and owner of its question and none of its content.
+    @Test
+    public void cachedAnswerHoldsQuestionReference() {
+        final AnswerCache cache = new AnswerCache(true, 100, 60);
+        cache.put(answer("answer", "question"));
+
+        final Question question = cache.get("answer").getQuestion();
+        assertEquals(Integer.valueOf(7), question.getId());
+        assertEquals("question", question.getUuid());
+        assertSame(owner, question.getUser());
+        assertNull(question.getContent());
+    }
+
+    //This test case passes when an answer invalidated by uuid is dropped alone, and dropped again after the transaction
+    //completes in case a concurrent lookup cached it in between.
+    @Test
+    public void invalidationByUuidIsRepeatedAfterCompletion() {
+        final AnswerCache cache = new AnswerCache(true, 100, 60);
+        cache.put(answer("answer", "question"));
+        cache.put(answer("other", "question"));
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.invalidate("answer");
+        assertNull(cache.get("answer"));
+        assertNotNull(cache.get("other"));
+        cache.put(answer("answer", "question"));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        assertNull(cache.get("answer"));
+        assertNotNull(cache.get("other"));
+    }
+
+    //This test case passes when a cascading invalidation drops every answer of the deleted question and keeps the others.
+    @Test
+    public void cascadingInvalidationDropsMatchingAnswers() {
+        final AnswerCache cache = new AnswerCache(true, 100, 60);
+        cache.put(answer("first", "deleted"));
+        cache.put(answer("second", "deleted"));
+        cache.put(answer("third", "kept"));
+
+        cache.invalidateIf(answer -> "deleted".equals(answer.getQuestion().getUuid()));
+
+        assertNull(cache.get("first"));
+        assertNull(cache.get("second"));
+        assertNotNull(cache.get("third"));
+        assertEquals(1, cache.size());
+    }
+
+    private Answer answer(final String uuid, final String questionUuid) {
+        final Question question = new Question();
+        question.setId(7);
+        question.setUuid(questionUuid);
+        question.setContent("content");
+        question.setUser(owner);
+        final Answer answer = new Answer();
+        answer.setUuid(uuid);
+        answer.setAnswer("answer text");
+        answer.setUser(owner);
+        answer.setQuestion(question);
+        return answer;
+    }
+}
@@ -0,0 +1,81 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.dto.QuestionAnswersPage;
+import com.upgrad.quora.service.type.AnswerSortType;
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public class AnswerListCacheTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @After
+    public void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    //This test case passes when the pages of one order are cached apart from the same pages of the other order.
+    @Test
+    public void pagesAreCachedPerOrder() {
+        final AnswerListCache cache = new AnswerListCache(true, 100, 60);
+        get(cache, "question", AnswerSortType.score);
+        get(cache, "question", AnswerSortType.newest);
+        get(cache, "question", AnswerSortType.score);
+        get(cache, "question", AnswerSortType.newest);
+
+        assertEquals(2, loads.get());
+        assertEquals(2, cache.getHitCount());
+    }
+
+    //This test case passes when invalidating one order of a question drops only its pages, again after the transaction
+    //completes, while the pages of the other order and of other questions stay cached.
+    @Test
+    public void invalidationByOrderKeepsOtherOrders() {
+        final AnswerListCache cache = new AnswerListCache(true, 100, 60);
+        get(cache, "question", AnswerSortType.score);
+        get(cache, "question", AnswerSortType.newest);
+        get(cache, "other", AnswerSortType.score);
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.invalidate("question", AnswerSortType.score);
+        get(cache, "question", AnswerSortType.score);
+        assertEquals(4, loads.get());
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+        get(cache, "question", AnswerSortType.score);
+        get(cache, "question", AnswerSortType.newest);
+        get(cache, "other", AnswerSortType.score);
+        assertEquals(5, loads.get());
+    }
+
+    //This test case passes when invalidating a question drops its pages in every order.
+    @Test
+    public void invalidationOfQuestionDropsEveryOrder() {
+        final AnswerListCache cache = new AnswerListCache(true, 100, 60);
+        get(cache, "question", AnswerSortType.score);
+        get(cache, "question", AnswerSortType.newest);
+
+        cache.invalidate("question");
+        get(cache, "question", AnswerSortType.score);
+        get(cache, "question", AnswerSortType.newest);
+
+        assertEquals(4, loads.get());
+    }
+
+    private QuestionAnswersPage get(final AnswerListCache cache, final String questionUuId, final AnswerSortType sort) {
+        return cache.get(questionUuId, sort, "/10", () -> {
+            loads.incrementAndGet();
+            return new QuestionAnswersPage("content", null);
+        });
+    }
+}
@@ -0,0 +1,165 @@
+package com.upgrad.quora.service.cache;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class BoundedTtlCacheTest {
+
+    //This test case passes when a cached value is returned until it expires, after which the lookup misses.
+    @Test
+    public void entryExpiresAtItsOwnDeadline() throws Exception {
+        final BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 60_000);
+        cache.put("token", "session", System.currentTimeMillis() + 100);
+        assertEquals("session", cache.get("token"));
+        Thread.sleep(200);
+        assertNull(cache.get("token"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(0, cache.size());
+    }
+
+    //This test case passes when an entry already expired on arrival is not stored.
+    @Test
+    public void expiredEntryIsNotStored() {
+        final BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(10, 60_000);
+        cache.put("token", "session", System.currentTimeMillis() - 1);
+        assertEquals(0, cache.size());
+    }
+
+    //This test case passes when a new entry evicts the least recently used entry of its segment.
+    @Test
+    public void leastRecentlyUsedEntryOfSegmentIsEvicted() {
+        //a cache of two entries has two segments holding one entry each, the keys are chosen to share a segment
+        final BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(2, 60_000);
+        final String first = "a";
+        final String second = sameSegmentKey(first);
+        cache.put(first, "1");
+        assertEquals("1", cache.get(first));
+        cache.put(second, "2");
+        assertNull(cache.get(first));
+        assertEquals("2", cache.get(second));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    //This test case passes when the cache never holds more than its maximum size, whatever the keys.
+    @Test
+    public void sizeNeverExceedsMaximum() {
+        final BoundedTtlCache<Integer, Integer> cache = new BoundedTtlCache<>(100, 60_000);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put(i, i);
+            assertTrue(cache.size() <= 100);
+        }
+        assertEquals(10_000 - cache.size(), cache.getEvictionCount());
+    }
+
+    //This test case passes when removeIf drops exactly the matching entries of every segment.
+    @Test
+    public void removeIfDropsMatchingEntries() {
+        final BoundedTtlCache<Integer, String> cache = new BoundedTtlCache<>(1000, 60_000);
+        for (int i = 0; i < 500; i++) {
+            cache.put(i, i % 2 == 0 ? "even" : "odd");
+        }
+        cache.removeIf((key, value) -> "odd".equals(value));
+        assertEquals(250, cache.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals(i % 2 == 0, cache.get(i) != null);
+        }
+    }
+
+    //This test case passes when a disabled cache stores nothing and getOrPut hands out the supplied value.
+    @Test
+    public void disabledCacheStoresNothing() {
+        final BoundedTtlCache<String, String> cache = new BoundedTtlCache<>(0, 60_000);
+        assertFalse(cache.isEnabled());
+        cache.put("token", "session");
+        assertNull(cache.get("token"));
+        assertEquals("value", cache.getOrPut("token", () -> "value"));
+        assertEquals(0, cache.size());
+    }
+
+    //This test case passes when concurrent getOrPut calls of the same key all get the single value created.
+    @Test
+    public void getOrPutCreatesOneValuePerKey() throws Exception {
+        final BoundedTtlCache<String, Object> cache = new BoundedTtlCache<>(1000, 60_000);
+        final AtomicInteger created = new AtomicInteger();
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Future<Object>> values = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            values.add(executor.submit(() -> {
+                start.await();
+                return cache.getOrPut("question", () -> {
+                    created.incrementAndGet();
+                    return new Object();
+                });
+            }));
+        }
+        start.countDown();
+        final Object value = values.get(0).get();
+        for (Future<Object> other : values) {
+            assertSame(value, other.get());
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(1, created.get());
+    }
+
+    //This test case passes when concurrent puts and gets of many keys keep the cache within its bound and consistent.
+    @Test
+    public void concurrentAccessStaysConsistent() throws Exception {
+        final BoundedTtlCache<Integer, Integer> cache = new BoundedTtlCache<>(512, 60_000);
+        final int threads = 8;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final List<Future<?>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    final int key = (i * 31 + offset) % 2048;
+                    final Integer value = cache.get(key);
+                    if (value != null) {
+                        assertEquals(key, value.intValue());
+                    } else {
+                        cache.put(key, key);
+                    }
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+        assertTrue(cache.size() <= 512);
+        assertEquals(threads * 50_000L, cache.getHitCount() + cache.getMissCount());
+    }
+
+    private static String sameSegmentKey(final String key) {
+        final int bit = spread(key.hashCode()) & 1;
+        for (char c = 'b'; ; c++) {
+            final String candidate = String.valueOf(c);
+            if ((spread(candidate.hashCode()) & 1) == bit) {
+                return candidate;
+            }
+        }
+    }
+
+    private static int spread(final int hash) {
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,164 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.DatabaseTestApplication;
+import com.upgrad.quora.service.PostgresAvailable;
+import com.upgrad.quora.service.common.KeysetCursor;
+import com.upgrad.quora.service.common.ScoreCursor;
+import com.upgrad.quora.service.dto.AnswerSummary;
+import com.upgrad.quora.service.entity.Answer;
+import com.upgrad.quora.service.entity.Question;
+import com.upgrad.quora.service.entity.UserEntity;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Walks the answer listing pages of a question through the cursors, checking that the pages read by the lateral
+ * queries come out in listing order although the queries leave the order to the index; the fixtures are rolled
+ * back with the test transaction.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = DatabaseTestApplication.class, webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Transactional
+public class AnswerPageQueryTest {
+
+    @ClassRule
+    public static final PostgresAvailable POSTGRES = new PostgresAvailable();
+
+    private static final int[] SCORES = {3, 1, 3, 0, -1, 1, 3};
+
+    //minutes before now, answers sharing a date are ordered by id
+    private static final int[] AGES = {5, 2, 9, 2, 7, 1, 2};
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private AnswerDao answerDao;
+
+    private UserEntity user;
+    private Question question;
+    private final List<Answer> answers = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        user = new UserEntity();
+        final String name = UUID.randomUUID().toString().substring(0, 8);
+        user.setUuid(UUID.randomUUID().toString());
+        user.setFirstName(name);
+        user.setLastName(name);
+        user.setUserName(name);
+        user.setEmailAddress(name + "@quora.test");
+        user.setPassword("password");
+        user.setSalt("salt");
+        user.setRole("nonadmin");
+        entityManager.persist(user);
+        question = question();
+        final ZonedDateTime now = ZonedDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+        for (int i = 0; i < SCORES.length; i++) {
+            final Answer answer = new Answer();
+            answer.setUuid(UUID.randomUUID().toString());
+            answer.setAnswer("answer " + i);
+            answer.setDate(now.minusMinutes(AGES[i]));
+            answer.setScore(SCORES[i]);
+            answer.setUser(user);
+            answer.setQuestion(question);
+            entityManager.persist(answer);
+            answers.add(answer);
+        }
+        entityManager.flush();
+        //the score is maintained by AnswerVoteBuffer and never inserted through the entity
+        for (Answer answer : answers) {
+            entityManager.createNativeQuery("update answer set score = :score where id = :id")
+                    .setParameter("score", answer.getScore()).setParameter("id", answer.getId()).executeUpdate();
+        }
+        entityManager.clear();
+    }
+
+    //This test case passes when the pages of the answers walked through the cursors list every answer once,
+    //highest score first and the latest answer first among equal scores.
+    @Test
+    public void scorePagesComeInScoreOrder() {
+        final List<Integer> listed = new ArrayList<>();
+        ScoreCursor after = null;
+        while (true) {
+            final List<AnswerSummary> page = answerDao.getAnswersPageForQuestion(question.getUuid(), after, 2);
+            if (!page.get(0).isAnswer()) {
+                break;
+            }
+            assertTrue(page.size() <= 2);
+            page.forEach(answer -> listed.add(answer.getId()));
+            final AnswerSummary last = page.get(page.size() - 1);
+            after = new ScoreCursor(last.getScore(), last.getId());
+        }
+        assertEquals(expected(Comparator.comparing(Answer::getScore).thenComparing(Answer::getId).reversed()), listed);
+    }
+
+    //This test case passes when the pages of the answers walked through the cursors list every answer once,
+    //most recent first and the latest answer first among equal dates.
+    @Test
+    public void newestPagesComeInDateOrder() {
+        final List<Integer> listed = new ArrayList<>();
+        KeysetCursor after = null;
+        while (true) {
+            final List<AnswerSummary> page = answerDao.getNewestAnswersPageForQuestion(question.getUuid(), after, 2);
+            if (!page.get(0).isAnswer()) {
+                break;
+            }
+            assertTrue(page.size() <= 2);
+            page.forEach(answer -> listed.add(answer.getId()));
+            final AnswerSummary last = page.get(page.size() - 1);
+            after = new KeysetCursor(last.getDate(), last.getId());
+        }
+        assertEquals(expected(Comparator.comparing(Answer::getDate).thenComparing(Answer::getId).reversed()), listed);
+    }
+
+    //This test case passes when a question without answers gives a single row with its content and no answer,
+    //and an unknown question gives no row.
+    @Test
+    public void questionWithoutAnswersGivesOneRow() {
+        final Question unanswered = question();
+        entityManager.flush();
+
+        final List<AnswerSummary> rows = answerDao.getAnswersPageForQuestion(unanswered.getUuid(), null, 10);
+        assertEquals(1, rows.size());
+        assertFalse(rows.get(0).isAnswer());
+        assertEquals(unanswered.getContent(), rows.get(0).getQuestionContent());
+        assertEquals(1, answerDao.getNewestAnswersPageForQuestion(unanswered.getUuid(), null, 10).size());
+        assertTrue(answerDao.getAnswersPageForQuestion(UUID.randomUUID().toString(), null, 10).isEmpty());
+        assertTrue(answerDao.getNewestAnswersPageForQuestion(UUID.randomUUID().toString(), null, 10).isEmpty());
+    }
+
+    private Question question() {
+        final Question question = new Question();
+        question.setUuid(UUID.randomUUID().toString());
+        question.setContent("In which order are the answers listed?");
+        question.setDate(ZonedDateTime.now());
+        question.setUser(user);
+        entityManager.persist(question);
+        return question;
+    }
+
+    private List<Integer> expected(final Comparator<Answer> order) {
+        return answers.stream().sorted(order).map(Answer::getId).collect(Collectors.toList());
+    }
+}
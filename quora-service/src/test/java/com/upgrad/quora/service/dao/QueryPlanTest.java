@@ -0,0 +1,220 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.DatabaseTestApplication;
+import com.upgrad.quora.service.PostgresAvailable;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.NamedQueryDefinition;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.hql.spi.QueryTranslator;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the lookups of the named queries are served by the indexes of the migrations, by explaining the SQL
+ * Hibernate generates for them. Sequential scans are disabled for the explained statements, so that the planner
+ * uses an index wherever one applies, even on the small tables of a test database.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = DatabaseTestApplication.class, webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Transactional
+public class QueryPlanTest {
+
+    @ClassRule
+    public static final PostgresAvailable POSTGRES = new PostgresAvailable();
+
+    //named parameters of the native queries, which are not in the SQL once Hibernate bound them
+    private static final Pattern NATIVE_PARAMETER = Pattern.compile("(?<!:):(\\w+)");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    //This test case passes when a question is looked up by its uuid through the uuid index.
+    @Test
+    public void getQuestionUsesUuidIndex() {
+        assertUsesIndexes(explain("getQuestion", "uuid", "uuid"), "question_uuid_idx");
+        assertUsesIndexes(explain("countQuestionsByUuid", "uuid", "uuid"), "question_uuid_idx");
+    }
+
+    //This test case passes when an answer is looked up by its uuid through the uuid index.
+    @Test
+    public void getAnswerForUuIdUsesUuidIndex() {
+        assertUsesIndexes(explain("getAnswerForUuId", "uuid", "uuid"), "answer_uuid_idx");
+        assertUsesIndexes(explain("countAnswersByUuid", "uuid", "uuid"), "answer_uuid_idx");
+    }
+
+    //This test case passes when a session and its user are looked up through the token indexes and the user key.
+    @Test
+    public void authByAccessTokenUsesTokenIndex() {
+        assertUsesIndexes(explain("authWithUserByAccessToken", "accessToken", "token"),
+                "user_auth_access_token_idx", "users_pkey");
+        assertUsesIndexes(explain("authWithUserByRefreshToken", "refreshToken", "token"),
+                "user_auth_refresh_token_idx", "users_pkey");
+    }
+
+    //This test case passes when the answers of a question are read from the index in score order, up to the page size,
+    //without sorting.
+    @Test
+    public void getAnswersForQuestionUsesScoreIndex() {
+        assertReadsInIndexOrder(explain("getAnswersPageForQuestion", "uuid", "uuid", "limit", 11),
+                "question_uuid_idx", "answer_question_score_id_idx");
+        assertReadsInIndexOrder(explain("getAnswersPageForQuestionAfter", "uuid", "uuid", "score", 0, "id", 1, "limit", 11),
+                "question_uuid_idx", "answer_question_score_id_idx");
+    }
+
+    //This test case passes when the newest answers of a question are read from the index in date order, up to the page size,
+    //without sorting.
+    @Test
+    public void getNewestAnswersForQuestionUsesDateIndex() {
+        assertReadsInIndexOrder(explain("getNewestAnswersPageForQuestion", "uuid", "uuid", "limit", 11),
+                "question_uuid_idx", "answer_question_date_id_idx");
+        assertReadsInIndexOrder(explain("getNewestAnswersPageForQuestionAfter", "uuid", "uuid", "date", ZonedDateTime.now(), "id", 1, "limit", 11),
+                "question_uuid_idx", "answer_question_date_id_idx");
+    }
+
+    //This test case passes when the question listings are read from the indexes ordered by date.
+    @Test
+    public void questionPagesUseDateIndexes() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        assertUsesIndexes(explain("getQuestionsPage"), "question_date_id_idx");
+        assertUsesIndexes(explain("getQuestionsPageAfter", "date", now, "id", 1), "question_date_id_idx");
+        assertUsesIndexes(explain("getQuestionsPageForUser", "userId", 1), "question_user_date_id_idx");
+        assertUsesIndexes(explain("getQuestionsPageForUserAfter", "userId", 1, "date", now, "id", 1),
+                "question_user_date_id_idx");
+    }
+
+    //This test case passes when the search of questions goes through the full text index.
+    @Test
+    public void searchQuestionsUsesFullTextIndex() {
+        assertUsesIndexes(explain("searchQuestions", "query", "java"), "question_content_fts_idx");
+    }
+
+    //This test case passes when the owner checked edits and deletes find their rows through the uuid indexes.
+    @Test
+    public void editsAndDeletesUseUuidIndexes() {
+        assertUsesIndexes(explain("editQuestionOfOwner", "content", "content", "uuid", "uuid", "userId", 1),
+                "question_uuid_idx");
+        assertUsesIndexes(explain("deleteQuestionOfOwner", "uuid", "uuid", "userId", 1), "question_uuid_idx");
+        assertUsesIndexes(explain("deleteQuestionByUuid", "uuid", "uuid"), "question_uuid_idx");
+        //the owner checked answer statements may equally go through the index of the answers of the user
+        assertUsesIndexes(explain("editAnswerOfOwner", "answer", "answer", "date", ZonedDateTime.now(), "uuid", "uuid", "userId", 1),
+                "answer_u", "question_pkey");
+        assertUsesIndexes(explain("deleteAnswerOfOwner", "uuid", "uuid", "userId", 1), "answer_u", "question_pkey");
+        assertUsesIndexes(explain("deleteAnswerByUuid", "uuid", "uuid"), "answer_uuid_idx", "question_pkey");
+    }
+
+    //This test case passes when the user lookups and the cascading deletes of a user find their rows through indexes.
+    @Test
+    public void userLookupsUseIndexes() {
+        assertUsesIndexes(explain("userByUuid", "uuid", "uuid"), "users_uuid_idx");
+        assertUsesIndexes(explain("userByUserName", "userName", "name"), "users_username_key");
+        assertUsesIndexes(explain("userByEmail", "email", "email"), "users_email_key");
+        assertUsesIndexes(explain("sessionIdsOfUser", "userId", 1), "user_auth_user_id_idx");
+        assertUsesIndexes(explain("questionIdsOfUser", "userId", 1), "question_user_date_id_idx");
+        assertUsesIndexes(explain("answerIdsOfUser", "userId", 1), "answer_user_id_idx");
+        assertUsesIndexes(explain("answerIdsOnQuestionsOfUser", "userId", 1), "question_user_date_id_idx", "answer_question_");
+        assertUsesIndexes(explain("answerIdsOfQuestion", "uuid", "uuid"), "question_uuid_idx", "answer_question_");
+    }
+
+    //This test case passes when the token syncs of the access token filter and the JWT verifier read through indexes.
+    @Test
+    public void tokenSyncsUseIndexes() {
+        final ZonedDateTime now = ZonedDateTime.now();
+        assertUsesIndexes(explain("accessTokensLoggedInSince", "since", now), "user_auth_login_at_idx");
+        assertUsesIndexes(explain("accessTokensSignedOutSince", "since", now, "now", now), "user_auth_logout_at_idx");
+        assertUsesIndexes(explain("accessTokensAfterId", "id", 1), "user_auth_pkey");
+    }
+
+    /**
+     * @param namedQuery name of the named query
+     * @param parameters pairs of parameter name and value
+     * @return lines of the query plan
+     */
+    private List<String> explain(final String namedQuery, final Object... parameters) {
+        final Map<String, Object> values = new HashMap<>();
+        for (int i = 0; i < parameters.length; i += 2) {
+            final Object value = parameters[i + 1];
+            values.put((String) parameters[i],
+                    value instanceof ZonedDateTime ? Timestamp.from(((ZonedDateTime) value).toInstant()) : value);
+        }
+        final SessionFactoryImplementor sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        final NamedQueryDefinition hql = sessionFactory.getNamedQueryRepository().getNamedQueryDefinition(namedQuery);
+        final Map<Integer, Object> bindings = new TreeMap<>();
+        final String sql;
+        if (hql != null) {
+            final QueryTranslator translator = sessionFactory.getQueryPlanCache()
+                    .getHQLQueryPlan(hql.getQueryString(), false, Collections.emptyMap()).getTranslators()[0];
+            //bulk updates and deletes have no query string of their own, only the statements they execute
+            sql = translator.collectSqlStrings().get(0);
+            for (Map.Entry<String, Object> value : values.entrySet()) {
+                for (int location : translator.getParameterTranslations().getNamedParameterSqlLocations(value.getKey())) {
+                    bindings.put(location + 1, value.getValue());
+                }
+            }
+        } else {
+            final Matcher matcher = NATIVE_PARAMETER.matcher(
+                    sessionFactory.getNamedQueryRepository().getNamedSQLQueryDefinition(namedQuery).getQueryString());
+            final StringBuffer nativeSql = new StringBuffer();
+            while (matcher.find()) {
+                bindings.put(bindings.size() + 1, values.get(matcher.group(1)));
+                matcher.appendReplacement(nativeSql, "?");
+            }
+            matcher.appendTail(nativeSql);
+            sql = nativeSql.toString();
+        }
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("set local enable_seqscan = off");
+            }
+            final List<String> plan = new ArrayList<>();
+            try (PreparedStatement statement = connection.prepareStatement("explain " + sql)) {
+                for (Map.Entry<Integer, Object> binding : bindings.entrySet()) {
+                    statement.setObject(binding.getKey(), binding.getValue());
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.add(resultSet.getString(1));
+                    }
+                }
+            }
+            return plan;
+        });
+    }
+
+    private static void assertReadsInIndexOrder(final List<String> plan, final String... indexes) {
+        assertUsesIndexes(plan, indexes);
+        final String text = String.join("\n", plan);
+        assertFalse("sort in\n" + text, text.contains("Sort"));
+        assertTrue("no limit in\n" + text, text.contains("Limit"));
+    }
+
+    private static void assertUsesIndexes(final List<String> plan, final String... indexes) {
+        final String text = String.join("\n", plan);
+        for (String index : indexes) {
+            assertTrue(index + " not used by\n" + text, text.contains(" on " + index) || text.contains(" using " + index));
+        }
+        assertFalse("sequential scan in\n" + text, text.contains("Seq Scan"));
+    }
+}